@@ -2,6 +2,8 @@ package es.juanbosco.ruben.proyecto_final_gimasio_2.Controllers;
 
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.BonoCreateDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.BonoDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.PaginaCursorDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.FormatoExportacion;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.BonoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,9 +15,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -40,6 +46,36 @@ public class BonoController {
         return ResponseEntity.ok(bonoService.findAll(pageable));
     }
 
+    @Operation(summary = "Recorrer bonos por cursor", description = "Retorna la página de bonos siguiente al cursor indicado, sin total de elementos")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de bonos obtenida exitosamente")
+    })
+    @GetMapping("/cursor")
+    public ResponseEntity<PaginaCursorDTO<BonoDTO>> getBonosPorCursor(
+            @Parameter(description = "Cursor: id del último elemento de la página anterior (vacío para la primera página)") @RequestParam(required = false) Long after,
+            @Parameter(description = "ID del socio") @RequestParam(required = false) Long idSocio,
+            @Parameter(description = "Estado activo del bono") @RequestParam(required = false) Boolean activo,
+            @Parameter(description = "Tamaño de página") @RequestParam(defaultValue = "100") int size
+    ) {
+        return ResponseEntity.ok(bonoService.findSiguientes(after, idSocio, activo, size));
+    }
+
+    @Operation(summary = "Exportar bonos", description = "Descarga todos los bonos en NDJSON (un objeto JSON por línea) o CSV. La respuesta se genera en streaming, sin paginar, por lo que sirve para tablas de cualquier tamaño")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Exportación generada")
+    })
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarBonos(
+            @Parameter(description = "Formato de la exportación (NDJSON o CSV)") @RequestParam(defaultValue = "NDJSON") FormatoExportacion formato,
+            @Parameter(description = "Filtrar por bonos activos/inactivos") @RequestParam(required = false) Boolean activo
+    ) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formato.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("bonos." + formato.getExtension()).build().toString())
+                .body(bonoService.exportar(formato, activo));
+    }
+
     @Operation(summary = "Obtener bonos de un socio", description = "Retorna todos los bonos de un socio específico")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de bonos del socio obtenida exitosamente")
@@ -0,0 +1,37 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.Controllers;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.CalendarioDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.CalendarioService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/calendario")
+@Tag(name = "Calendario", description = "API para consultar el calendario de clases y sus plazas")
+public class CalendarioController {
+
+    @Autowired
+    private CalendarioService calendarioService;
+
+    @Operation(summary = "Obtener calendario de clases", description = "Retorna las clases de varios días (por defecto la semana desde hoy) organizadas por día y horario, con su aforo y reservas confirmadas")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Calendario obtenido exitosamente"),
+            @ApiResponse(responseCode = "400", description = "Número de días no válido")
+    })
+    @GetMapping
+    public ResponseEntity<CalendarioDTO> getCalendario(
+            @Parameter(description = "Primer día (formato ISO: YYYY-MM-DD, por defecto hoy)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @Parameter(description = "Número de días (1-31)") @RequestParam(defaultValue = "7") int dias
+    ) {
+        return ResponseEntity.ok(calendarioService.obtener(desde, dias));
+    }
+}
@@ -0,0 +1,32 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.Controllers;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.CheckinDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.CheckinService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/checkin")
+@Tag(name = "Check-in", description = "API para el control de acceso por el torno")
+public class CheckinController {
+
+    @Autowired
+    private CheckinService checkinService;
+
+    @Operation(summary = "Registrar entrada", description = "Valida que el socio tiene una reserva confirmada para esta hora (desde 30 minutos antes del inicio hasta el fin de la clase) y registra su entrada")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Entrada permitida"),
+            @ApiResponse(responseCode = "400", description = "El socio no tiene ninguna reserva confirmada para esta hora")
+    })
+    @PostMapping("/{idSocio}")
+    public ResponseEntity<CheckinDTO> checkin(
+            @Parameter(description = "ID del socio") @PathVariable Long idSocio) {
+        return ResponseEntity.ok(checkinService.checkin(idSocio));
+    }
+}
@@ -2,7 +2,12 @@ package es.juanbosco.ruben.proyecto_final_gimasio_2.Controllers;
 
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ClaseCreateDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ClaseDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ListaEsperaCreateDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ListaEsperaDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.AsignacionPlazasService;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.ClaseService;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.DisponibilidadClasesService;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.ListaEsperaService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -15,8 +20,10 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -29,6 +36,15 @@ public class ClaseController {
     @Autowired
     private ClaseService claseService;
 
+    @Autowired
+    private ListaEsperaService listaEsperaService;
+
+    @Autowired
+    private DisponibilidadClasesService disponibilidadClasesService;
+
+    @Autowired
+    private AsignacionPlazasService asignacionPlazasService;
+
     @Operation(summary = "Obtener todas las clases", description = "Retorna una lista paginada de todas las clases")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de clases obtenida exitosamente")
@@ -58,15 +74,28 @@ public class ClaseController {
         return ResponseEntity.ok(claseService.findByFiltros(nombre, fechaClase, esPrivada, pageable));
     }
 
-    @Operation(summary = "Obtener clases populares", description = "Retorna las clases más populares según el número de reservas")
+    @Operation(summary = "Obtener clases populares", description = "Retorna las clases grupales más populares según el número de reservas no canceladas, en total o de los últimos días")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Lista de clases populares obtenida exitosamente")
+            @ApiResponse(responseCode = "200", description = "Lista de clases populares obtenida exitosamente"),
+            @ApiResponse(responseCode = "400", description = "Límite o número de días no válido")
     })
     @GetMapping("/populares")
     public ResponseEntity<List<ClaseDTO>> getClasesPopulares(
-            @Parameter(description = "Límite de resultados") @RequestParam(defaultValue = "5") int limit
+            @Parameter(description = "Límite de resultados (entre 1 y 100)") @RequestParam(defaultValue = "5") int limit,
+            @Parameter(description = "Contar solo las reservas de los últimos días (0 = todas, máximo 30)") @RequestParam(defaultValue = "0") int dias
     ) {
-        return ResponseEntity.ok(claseService.findClasesPopulares(limit));
+        return ResponseEntity.ok(claseService.findClasesPopulares(limit, dias));
+    }
+
+    @Operation(summary = "Disponibilidad de plazas en directo", description = "Abre un stream Server-Sent Events que envía un evento 'disponibilidad' con las plazas de cada clase cuando cambian sus reservas. Empieza con el estado de las clases del día indicado (o de hoy)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream de eventos abierto"),
+            @ApiResponse(responseCode = "503", description = "Demasiadas conexiones abiertas")
+    })
+    @GetMapping(value = "/disponibilidad/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDisponibilidad(
+            @Parameter(description = "Recibir solo las clases de esta fecha (formato ISO: YYYY-MM-DD)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+        return ResponseEntity.ok(disponibilidadClasesService.suscribir(fecha));
     }
 
     @Operation(summary = "Obtener clase por ID", description = "Retorna una clase específica por su ID")
@@ -103,4 +132,52 @@ public class ClaseController {
         claseService.delete(id);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Recalcular plazas ocupadas", description = "Tarea de mantenimiento: recalcula a partir de las reservas confirmadas las plazas ocupadas de las clases que aún no han terminado. Devuelve el número de clases recalculadas")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Plazas recalculadas exitosamente")
+    })
+    @PostMapping("/recalcular-plazas")
+    public ResponseEntity<Integer> recalcularPlazas() {
+        return ResponseEntity.ok(asignacionPlazasService.recalcularPlazas());
+    }
+
+    @Operation(summary = "Apuntarse a la lista de espera", description = "Apunta al socio en la lista de espera de una clase grupal completa. Cuando se libera una plaza se le reserva automáticamente por orden de llegada")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Socio apuntado en la lista de espera"),
+            @ApiResponse(responseCode = "400", description = "La clase no está completa o el socio no puede reservarla"),
+            @ApiResponse(responseCode = "404", description = "Clase o socio no encontrado")
+    })
+    @PostMapping("/{id}/lista-espera")
+    public ResponseEntity<ListaEsperaDTO> apuntarListaEspera(
+            @Parameter(description = "ID de la clase") @PathVariable Long id,
+            @Parameter(description = "Socio que se apunta") @Valid @RequestBody ListaEsperaCreateDTO createDTO) {
+        ListaEsperaDTO created = listaEsperaService.apuntar(id, createDTO.getIdSocio());
+        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+    }
+
+    @Operation(summary = "Consultar lista de espera", description = "Devuelve la posición del socio en la lista de espera, o si ya tiene la reserva confirmada")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Posición obtenida exitosamente"),
+            @ApiResponse(responseCode = "404", description = "El socio no está en la lista de espera")
+    })
+    @GetMapping("/{id}/lista-espera/{idSocio}")
+    public ResponseEntity<ListaEsperaDTO> consultarListaEspera(
+            @Parameter(description = "ID de la clase") @PathVariable Long id,
+            @Parameter(description = "ID del socio") @PathVariable Long idSocio) {
+        return ResponseEntity.ok(listaEsperaService.consultar(id, idSocio));
+    }
+
+    @Operation(summary = "Abandonar lista de espera", description = "Quita al socio de la lista de espera de la clase")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Socio quitado de la lista de espera"),
+            @ApiResponse(responseCode = "404", description = "El socio no está en la lista de espera")
+    })
+    @DeleteMapping("/{id}/lista-espera/{idSocio}")
+    public ResponseEntity<Void> abandonarListaEspera(
+            @Parameter(description = "ID de la clase") @PathVariable Long id,
+            @Parameter(description = "ID del socio") @PathVariable Long idSocio) {
+        listaEsperaService.abandonar(id, idSocio);
+        return ResponseEntity.noContent().build();
+    }
+}
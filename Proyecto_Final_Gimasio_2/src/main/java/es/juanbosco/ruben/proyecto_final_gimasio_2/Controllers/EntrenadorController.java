@@ -3,6 +3,7 @@ package es.juanbosco.ruben.proyecto_final_gimasio_2.Controllers;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.EntrenadorCreateDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.EntrenadorDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.EntrenadorUpdateDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.HuecoDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.EntrenadorService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,10 +15,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/entrenadores")
 @Tag(name = "Entrenadores", description = "API para la gestión de entrenadores del gimnasio")
@@ -64,6 +69,22 @@ public class EntrenadorController {
         return ResponseEntity.ok(entrenadorService.findById(id));
     }
 
+    @Operation(summary = "Huecos libres del entrenador", description = "Retorna los tramos libres del entrenador dentro del horario del gimnasio de al menos la duración indicada, para programar clases privadas (por defecto las próximas 4 semanas)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Huecos libres obtenidos exitosamente"),
+            @ApiResponse(responseCode = "400", description = "Rango de fechas o duración no válidos"),
+            @ApiResponse(responseCode = "404", description = "Entrenador no encontrado")
+    })
+    @GetMapping("/{id}/huecos")
+    public ResponseEntity<List<HuecoDTO>> getHuecos(
+            @Parameter(description = "ID del entrenador") @PathVariable Long id,
+            @Parameter(description = "Fecha inicial (formato ISO: YYYY-MM-DD, por defecto hoy)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @Parameter(description = "Fecha final incluida (formato ISO: YYYY-MM-DD, máximo 62 días)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @Parameter(description = "Duración mínima del hueco en minutos (15-180)") @RequestParam(defaultValue = "60") int duracion
+    ) {
+        return ResponseEntity.ok(entrenadorService.findHuecos(id, desde, hasta, duracion));
+    }
+
     @Operation(summary = "Crear entrenador", description = "Crea un nuevo entrenador en el sistema")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Entrenador creado exitosamente"),
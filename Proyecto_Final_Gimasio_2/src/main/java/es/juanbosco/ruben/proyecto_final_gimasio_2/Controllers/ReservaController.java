@@ -1,8 +1,15 @@
 package es.juanbosco.ruben.proyecto_final_gimasio_2.Controllers;
 
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.CompletadoReservasDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.PaginaCursorDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ReservaCreateDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ReservaDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SolicitudReservaDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoSolicitud;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.FormatoExportacion;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.ColaReservasService;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.CompletadoReservasService;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.ReservaService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -17,9 +24,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/api/reservas")
@@ -29,6 +43,12 @@ public class ReservaController {
     @Autowired
     private ReservaService reservaService;
 
+    @Autowired
+    private CompletadoReservasService completadoReservasService;
+
+    @Autowired
+    private ColaReservasService colaReservasService;
+
     @Operation(summary = "Obtener todas las reservas", description = "Retorna una lista paginada de todas las reservas")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de reservas obtenida exitosamente")
@@ -57,6 +77,38 @@ public class ReservaController {
         return ResponseEntity.ok(reservaService.findByFiltros(idSocio, estado, pageable));
     }
 
+    @Operation(summary = "Recorrer reservas por cursor", description = "Retorna la página de reservas siguiente al cursor indicado, sin total de elementos. Pensado para exportaciones y clientes de sincronización que recorren todo el listado")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de reservas obtenida exitosamente")
+    })
+    @GetMapping("/cursor")
+    public ResponseEntity<PaginaCursorDTO<ReservaDTO>> getReservasPorCursor(
+            @Parameter(description = "Cursor: id del último elemento de la página anterior (vacío para la primera página)") @RequestParam(required = false) Long after,
+            @Parameter(description = "ID del socio") @RequestParam(required = false) Long idSocio,
+            @Parameter(description = "Estado de la reserva (CONFIRMADA, CANCELADA, COMPLETADA)") @RequestParam(required = false) EstadoReserva estado,
+            @Parameter(description = "Tamaño de página") @RequestParam(defaultValue = "100") int size
+    ) {
+        return ResponseEntity.ok(reservaService.findSiguientes(after, idSocio, estado, size));
+    }
+
+    @Operation(summary = "Exportar reservas", description = "Descarga todas las reservas (opcionalmente de un periodo de fechas de reserva y un estado) en NDJSON (un objeto JSON por línea) o CSV. La respuesta se genera en streaming, sin paginar, por lo que sirve para tablas de cualquier tamaño")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Exportación generada")
+    })
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarReservas(
+            @Parameter(description = "Formato de la exportación (NDJSON o CSV)") @RequestParam(defaultValue = "NDJSON") FormatoExportacion formato,
+            @Parameter(description = "Fecha de reserva desde (incluida)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @Parameter(description = "Fecha de reserva hasta (excluida)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @Parameter(description = "Estado de la reserva (CONFIRMADA, CANCELADA, COMPLETADA)") @RequestParam(required = false) EstadoReserva estado
+    ) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formato.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("reservas." + formato.getExtension()).build().toString())
+                .body(reservaService.exportar(formato, desde, hasta, estado));
+    }
+
     @Operation(summary = "Obtener reserva por ID", description = "Retorna una reserva específica por su ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Reserva encontrada"),
@@ -106,6 +158,31 @@ public class ReservaController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    @Operation(summary = "Crear reserva mediante cola", description = "Modo de admisión para aperturas de clases con mucha demanda: la reserva se atiende por orden de llegada en la cola de la clase. " +
+            "Si se resuelve a tiempo se devuelve la reserva (201); si no, un ticket EN_COLA (202) que se consulta en /api/reservas/cola/{ticket}")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Reserva creada exitosamente"),
+            @ApiResponse(responseCode = "202", description = "Reserva en cola, consultar el ticket"),
+            @ApiResponse(responseCode = "400", description = "Datos de entrada inválidos, no hay plazas disponibles o la cola está llena")
+    })
+    @PostMapping("/cola")
+    public ResponseEntity<SolicitudReservaDTO> createReservaEnCola(@Valid @RequestBody ReservaCreateDTO reservaDTO) {
+        SolicitudReservaDTO solicitud = colaReservasService.reservar(reservaDTO);
+        HttpStatus status = solicitud.getEstado() == EstadoSolicitud.EN_COLA ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+        return ResponseEntity.status(status).body(solicitud);
+    }
+
+    @Operation(summary = "Consultar reserva en cola", description = "Retorna el estado de una reserva enviada a la cola (EN_COLA, CONFIRMADA o RECHAZADA)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Estado de la solicitud"),
+            @ApiResponse(responseCode = "404", description = "Ticket no encontrado o caducado")
+    })
+    @GetMapping("/cola/{ticket}")
+    public ResponseEntity<SolicitudReservaDTO> getSolicitudReserva(
+            @Parameter(description = "Ticket devuelto al encolar la reserva") @PathVariable String ticket) {
+        return ResponseEntity.ok(colaReservasService.consultar(ticket));
+    }
+
     @Operation(summary = "Cancelar reserva", description = "Cambia el estado de una reserva a CANCELADA")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Reserva cancelada exitosamente"),
@@ -117,6 +194,16 @@ public class ReservaController {
         return ResponseEntity.ok(reservaService.cancelar(id));
     }
 
+    @Operation(summary = "Completar reservas terminadas", description = "Marca como COMPLETADA las reservas confirmadas de las clases que ya han terminado (también se ejecuta automáticamente)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reservas completadas exitosamente"),
+            @ApiResponse(responseCode = "400", description = "Ya hay un completado de reservas en curso")
+    })
+    @PostMapping("/completar")
+    public ResponseEntity<CompletadoReservasDTO> completarReservas() {
+        return ResponseEntity.ok(completadoReservasService.completarReservasTerminadas());
+    }
+
     @Operation(summary = "Eliminar reserva", description = "Elimina una reserva del sistema permanentemente")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Reserva eliminada exitosamente"),
@@ -0,0 +1,91 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.Controllers;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.CancelacionSerieDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SerieClasesCreateDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SerieClasesDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SerieClasesUpdateDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.SerieClasesService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/series-clases")
+@Tag(name = "Series de clases", description = "API para las clases que se repiten cada semana")
+public class SerieClasesController {
+
+    @Autowired
+    private SerieClasesService serieClasesService;
+
+    @Operation(summary = "Obtener todas las series", description = "Retorna todas las series de clases")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lista de series obtenida exitosamente")
+    })
+    @GetMapping
+    public ResponseEntity<List<SerieClasesDTO>> getAllSeries() {
+        return ResponseEntity.ok(serieClasesService.findAll());
+    }
+
+    @Operation(summary = "Obtener serie por ID", description = "Retorna una serie de clases específica por su ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Serie encontrada"),
+            @ApiResponse(responseCode = "404", description = "Serie no encontrada")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<SerieClasesDTO> getSerieById(
+            @Parameter(description = "ID de la serie") @PathVariable Long id) {
+        return ResponseEntity.ok(serieClasesService.findById(id));
+    }
+
+    @Operation(summary = "Crear serie", description = "Crea una serie semanal y genera de una vez sus clases (una por cada día indicado) hasta la fecha de fin o el horizonte configurado. Cada clase se llama \"<nombre> <fecha>\"")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Serie creada y clases generadas (ver clasesAfectadas)"),
+            @ApiResponse(responseCode = "400", description = "Datos de entrada inválidos o nombre de clase ya en uso"),
+            @ApiResponse(responseCode = "404", description = "Horario o entrenador no encontrado")
+    })
+    @PostMapping
+    public ResponseEntity<SerieClasesDTO> createSerie(
+            @Parameter(description = "Datos de la serie a crear") @Valid @RequestBody SerieClasesCreateDTO serieDTO) {
+        SerieClasesDTO created = serieClasesService.create(serieDTO);
+        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+    }
+
+    @Operation(summary = "Cambiar horario o entrenador de una serie", description = "Mueve todas las clases de la serie desde la fecha indicada (por defecto hoy) al nuevo horario y/o entrenador")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Serie modificada (ver clasesAfectadas)"),
+            @ApiResponse(responseCode = "400", description = "Datos de entrada inválidos"),
+            @ApiResponse(responseCode = "404", description = "Serie, horario o entrenador no encontrado")
+    })
+    @PutMapping("/{id}")
+    public ResponseEntity<SerieClasesDTO> updateSerie(
+            @Parameter(description = "ID de la serie") @PathVariable Long id,
+            @Parameter(description = "Nuevo horario y/o entrenador") @RequestBody SerieClasesUpdateDTO serieDTO
+    ) {
+        return ResponseEntity.ok(serieClasesService.update(id, serieDTO));
+    }
+
+    @Operation(summary = "Cancelar serie", description = "Deja de generar clases desde la fecha indicada (por defecto hoy) y borra las que no tienen reservas; las que ya tienen reservas se conservan")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Serie cancelada"),
+            @ApiResponse(responseCode = "400", description = "Fecha no válida"),
+            @ApiResponse(responseCode = "404", description = "Serie no encontrada")
+    })
+    @PostMapping("/{id}/cancelar")
+    public ResponseEntity<CancelacionSerieDTO> cancelarSerie(
+            @Parameter(description = "ID de la serie") @PathVariable Long id,
+            @Parameter(description = "Cancelar desde esta fecha (formato ISO: YYYY-MM-DD)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde
+    ) {
+        return ResponseEntity.ok(serieClasesService.cancelar(id, desde));
+    }
+}
@@ -1,8 +1,12 @@
 package es.juanbosco.ruben.proyecto_final_gimasio_2.Controllers;
 
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ImportacionSociosDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.PaginaCursorDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SocioCreateDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SocioDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SocioUpdateDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.FormatoExportacion;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.ImportacionSociosService;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.SocioService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -15,9 +19,16 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/socios")
@@ -27,6 +38,9 @@ public class SocioController {
     @Autowired
     private SocioService socioService;
 
+    @Autowired
+    private ImportacionSociosService importacionSociosService;
+
     @Operation(summary = "Obtener todos los socios", description = "Retorna una lista paginada de todos los socios")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de socios obtenida exitosamente")
@@ -72,6 +86,47 @@ public class SocioController {
         return ResponseEntity.ok(socioService.findByFiltros(nombre, email, esActivo, pageable));
     }
 
+    @Operation(summary = "Recorrer socios por cursor", description = "Retorna la página de socios siguiente al cursor indicado, sin total de elementos")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de socios obtenida exitosamente")
+    })
+    @GetMapping("/cursor")
+    public ResponseEntity<PaginaCursorDTO<SocioDTO>> getSociosPorCursor(
+            @Parameter(description = "Cursor: id del último elemento de la página anterior (vacío para la primera página)") @RequestParam(required = false) Long after,
+            @Parameter(description = "Estado activo del socio") @RequestParam(required = false) Boolean esActivo,
+            @Parameter(description = "Tamaño de página") @RequestParam(defaultValue = "100") int size
+    ) {
+        return ResponseEntity.ok(socioService.findSiguientes(after, esActivo, size));
+    }
+
+    @Operation(summary = "Exportar socios", description = "Descarga todos los socios (sin entrenadores) en NDJSON (un objeto JSON por línea) o CSV. La respuesta se genera en streaming, sin paginar, por lo que sirve para tablas de cualquier tamaño")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Exportación generada")
+    })
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarSocios(
+            @Parameter(description = "Formato de la exportación (NDJSON o CSV)") @RequestParam(defaultValue = "NDJSON") FormatoExportacion formato,
+            @Parameter(description = "Filtrar por socios activos/inactivos") @RequestParam(required = false) Boolean esActivo
+    ) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formato.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("socios." + formato.getExtension()).build().toString())
+                .body(socioService.exportar(formato, esActivo));
+    }
+
+    @Operation(summary = "Sugerencias de socios", description = "Búsqueda instantánea por texto parcial en nombre, apellidos, email o teléfono, ordenada por relevancia")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Sugerencias obtenidas exitosamente")
+    })
+    @GetMapping("/sugerencias")
+    public ResponseEntity<List<SocioDTO>> getSugerencias(
+            @Parameter(description = "Texto a buscar") @RequestParam String texto,
+            @Parameter(description = "Límite de resultados") @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(socioService.buscarSugerencias(texto, limit));
+    }
+
     @Operation(summary = "Obtener socio por ID", description = "Retorna un socio específico por su ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Socio encontrado"),
@@ -95,6 +150,17 @@ public class SocioController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    @Operation(summary = "Importar socios desde CSV", description = "Da de alta socios en bloque a partir de un CSV con cabecera nombre,apellidos,email,telefono,tipoPlan. Las filas con errores (datos inválidos, plan desconocido o email repetido) se omiten y se devuelven con su número de línea; el resto se importa")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Importación realizada (ver filasConError)"),
+            @ApiResponse(responseCode = "400", description = "Fichero vacío o sin las columnas obligatorias")
+    })
+    @PostMapping(value = "/importar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportacionSociosDTO> importarSocios(
+            @Parameter(description = "Fichero CSV (UTF-8) con los socios") @RequestParam("archivo") MultipartFile archivo) {
+        return ResponseEntity.ok(importacionSociosService.importar(archivo));
+    }
+
     @Operation(summary = "Actualizar socio", description = "Actualiza los datos de un socio existente")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Socio actualizado exitosamente"),
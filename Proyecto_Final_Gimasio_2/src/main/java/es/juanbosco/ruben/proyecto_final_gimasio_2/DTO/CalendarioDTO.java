@@ -0,0 +1,19 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Calendario de clases: columnas = días, filas = horarios (cada clase indica su idHorario)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalendarioDTO {
+    private LocalDate desde;
+    private Integer dias;
+    private List<HorarioDTO> horarios; // horarios con alguna clase en el rango, por hora de inicio
+    private List<DiaCalendarioDTO> calendario;
+}
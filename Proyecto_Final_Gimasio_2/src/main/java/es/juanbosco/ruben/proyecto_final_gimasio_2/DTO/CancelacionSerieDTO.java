@@ -0,0 +1,16 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CancelacionSerieDTO {
+    private Long idSerie;
+    // Sesiones futuras sin reservas que se han borrado
+    private Integer clasesEliminadas;
+    // Sesiones futuras que se mantienen porque ya tienen reservas
+    private Integer clasesConservadas;
+}
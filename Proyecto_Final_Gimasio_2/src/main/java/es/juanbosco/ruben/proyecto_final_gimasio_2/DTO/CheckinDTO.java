@@ -0,0 +1,22 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckinDTO {
+    private Long idSocio;
+    private Long idReserva;
+    private Long idClase;
+    private String nombreClase;
+    private LocalTime horaInicio;
+    private LocalTime horaFin;
+    private LocalDateTime fechaCheckin;
+    private Boolean repetido; // true si el socio ya había entrado para esta reserva
+}
@@ -0,0 +1,18 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Clase dentro de una celda del calendario (día x horario)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaseCalendarioDTO {
+    private Long idClase;
+    private String nombre;
+    private Boolean esPrivada;
+    private Long idHorario;
+    private Integer aforoMaximo;
+    private Integer reservasConfirmadas;
+}
@@ -21,4 +21,5 @@ public class ClaseDTO {
     private Long idEntrenador;
     private String nombreEntrenador;
     private Integer reservasConfirmadas;
+    private Long idSerie; // null si no pertenece a ninguna serie
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompletadoReservasDTO {
+    private Integer clasesProcesadas;
+    private Integer reservasCompletadas;
+    private Integer lotes;
+}
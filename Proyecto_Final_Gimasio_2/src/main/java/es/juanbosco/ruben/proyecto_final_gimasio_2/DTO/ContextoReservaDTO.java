@@ -0,0 +1,39 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.TipoPlan;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Datos que necesitan las validaciones de una reserva (clase, horario, socio, plan y bono),
+// leídos con una sola consulta (ReservaRepository.findContexto). Uso interno, no se devuelve en la API.
+// Los campos del bono son null si no se ha indicado bono o no existe.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContextoReservaDTO {
+    private Long idClase;
+    private String nombreClase;
+    private LocalDate fechaClase;
+    private Boolean esPrivada;
+    private Integer aforoMaximo;
+    private Integer plazasOcupadas;
+    private Long idEntrenadorClase;
+    private Long idHorario;
+    private LocalTime horaInicio;
+    private LocalTime horaFin;
+    private Long idSocio;
+    private String nombreSocio;
+    private String apellidosSocio;
+    private Boolean socioActivo;
+    private TipoPlan tipoPlan;
+    private Long idBono;
+    private Long idSocioBono;
+    private Long idEntrenadorBono;
+    private Boolean entrenadorBonoActivo;
+    private Boolean bonoActivo;
+    private Integer sesionesRestantesBono;
+}
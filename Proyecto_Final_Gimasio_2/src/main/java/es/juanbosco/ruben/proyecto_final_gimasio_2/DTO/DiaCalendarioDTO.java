@@ -0,0 +1,16 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiaCalendarioDTO {
+    private LocalDate fecha;
+    private List<ClaseCalendarioDTO> clases; // ordenadas por hora de inicio
+}
@@ -0,0 +1,19 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Evento "disponibilidad" del stream de plazas libres
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DisponibilidadClaseDTO {
+    private Long idClase;
+    private LocalDate fechaClase;
+    private Integer aforoMaximo;
+    private Integer plazasOcupadas;
+    private Integer plazasLibres; // null si la clase no tiene aforo máximo
+}
@@ -0,0 +1,19 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+// Entrenador tal y como se guarda en la caché "entrenadores" (EntrenadorRepository.findReferenciaById)
+// Inmutable: la misma instancia se comparte entre peticiones. Uso interno, no se devuelve en la API.
+@Value
+public class EntrenadorReferenciaDTO {
+    Long idSocio;
+    String nombre;
+    String apellidos;
+    String email;
+    String telefono;
+    LocalDate fechaAlta;
+    Boolean esActivo;
+    String especialidad;
+}
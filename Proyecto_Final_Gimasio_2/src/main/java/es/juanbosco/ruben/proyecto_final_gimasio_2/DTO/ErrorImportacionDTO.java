@@ -0,0 +1,14 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ErrorImportacionDTO {
+    private Integer fila;     // número de línea del CSV (la cabecera es la 1)
+    private String email;
+    private String mensaje;
+}
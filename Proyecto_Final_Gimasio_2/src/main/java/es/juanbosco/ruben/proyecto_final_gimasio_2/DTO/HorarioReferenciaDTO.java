@@ -0,0 +1,14 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.Value;
+
+import java.time.LocalTime;
+
+// Horario tal y como se guarda en la caché "horarios" (HorarioRepository.findReferenciaById)
+// Inmutable: la misma instancia se comparte entre peticiones. Uso interno, no se devuelve en la API.
+@Value
+public class HorarioReferenciaDTO {
+    Long idHorario;
+    LocalTime horaInicio;
+    LocalTime horaFin;
+}
@@ -0,0 +1,17 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HuecoDTO {
+    private LocalDate fecha;
+    private LocalTime horaInicio;
+    private LocalTime horaFin;
+}
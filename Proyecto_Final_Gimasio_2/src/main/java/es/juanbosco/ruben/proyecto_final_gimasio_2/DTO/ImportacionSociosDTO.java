@@ -0,0 +1,17 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportacionSociosDTO {
+    private Integer filasLeidas;
+    private Integer sociosCreados;
+    private Integer filasConError;
+    private List<ErrorImportacionDTO> errores;  // como mucho los primeros 1000 errores
+}
@@ -0,0 +1,18 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListaEsperaDTO {
+    private Long idClase;
+    private Long idSocio;
+    private Long posicion;              // null si el socio ya no está en la lista
+    private LocalDateTime fechaAlta;
+    private Boolean reservaConfirmada;  // true si el socio ya tiene plaza (p. ej. tras ser promocionado)
+}
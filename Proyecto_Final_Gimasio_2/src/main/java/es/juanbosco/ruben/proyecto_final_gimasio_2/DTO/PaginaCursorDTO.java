@@ -0,0 +1,28 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Página de un listado por cursor: no incluye el total de elementos.
+// siguienteCursor es el valor a enviar en "after" para pedir la página siguiente (null si no hay más)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaCursorDTO<T> {
+    private List<T> contenido;
+    private Long siguienteCursor;
+
+    // Monta la página a partir de las filas leídas con un LIMIT de size + 1:
+    // si sobra una fila, hay más páginas y el cursor es el id de la última fila devuelta
+    public static <E, T> PaginaCursorDTO<T> crear(List<E> filas, int size, Function<E, Long> id, Function<E, T> convertir) {
+        boolean hayMas = filas.size() > size;
+        List<E> pagina = hayMas ? filas.subList(0, size) : filas;
+        Long siguiente = hayMas ? id.apply(pagina.get(pagina.size() - 1)) : null;
+        return new PaginaCursorDTO<>(pagina.stream().map(convertir).collect(Collectors.toList()), siguiente);
+    }
+}
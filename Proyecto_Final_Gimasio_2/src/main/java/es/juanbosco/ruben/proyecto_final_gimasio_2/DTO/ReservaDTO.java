@@ -20,4 +20,5 @@ public class ReservaDTO {
     private Long idBono;
     private EstadoReserva estado;
     private HorarioDTO horario;
+    private LocalDateTime fechaCheckin;
 }
\ No newline at end of file
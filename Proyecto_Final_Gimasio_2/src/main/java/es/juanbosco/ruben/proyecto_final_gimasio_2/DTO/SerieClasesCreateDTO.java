@@ -0,0 +1,48 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SerieClasesCreateDTO {
+
+    @NotBlank(message = "El nombre es obligatorio")
+    @Size(max = 85, message = "El nombre de la serie no puede superar los 85 caracteres")
+    private String nombre;
+
+    private String descripcion;
+
+    @Schema(defaultValue = "false")
+    @NotNull(message = "Debe especificar si es privada o no")
+    private Boolean esPrivada;
+
+    private Integer aforoMaximo;
+
+    @NotNull(message = "El horario es obligatorio")
+    private Long idHorario;
+
+    @NotNull(message = "El entrenador es obligatorio")
+    private Long idEntrenador;
+
+    @Schema(example = "[\"MONDAY\", \"WEDNESDAY\"]")
+    @NotEmpty(message = "Debe indicar al menos un día de la semana")
+    private Set<DayOfWeek> diasSemana;
+
+    @NotNull(message = "La fecha de inicio es obligatoria")
+    private LocalDate fechaInicio;
+
+    // Opcional: sin fecha de fin la serie se amplía indefinidamente
+    private LocalDate fechaFin;
+}
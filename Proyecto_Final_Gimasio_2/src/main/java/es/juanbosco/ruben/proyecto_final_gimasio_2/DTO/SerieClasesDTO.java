@@ -0,0 +1,30 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SerieClasesDTO {
+    private Long idSerie;
+    private String nombre;
+    private String descripcion;
+    private Boolean esPrivada;
+    private Integer aforoMaximo;
+    private HorarioDTO horario;
+    private Long idEntrenador;
+    private String nombreEntrenador;
+    private Set<DayOfWeek> diasSemana;
+    private LocalDate fechaInicio;
+    private LocalDate fechaFin;
+    private LocalDate generadaHasta;
+    private Boolean activa;
+    // Sesiones afectadas por la operación (generadas, modificadas o eliminadas)
+    private Integer clasesAfectadas;
+}
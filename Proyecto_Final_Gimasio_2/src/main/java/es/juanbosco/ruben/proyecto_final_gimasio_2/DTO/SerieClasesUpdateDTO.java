@@ -0,0 +1,18 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Cambio de horario y/o entrenador de una serie a partir de una fecha
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SerieClasesUpdateDTO {
+    private Long idHorario;
+    private Long idEntrenador;
+    // Opcional: por defecto, desde hoy
+    private LocalDate desde;
+}
@@ -0,0 +1,16 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoSolicitud;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolicitudReservaDTO {
+    private String ticket;
+    private EstadoSolicitud estado;
+    private ReservaDTO reserva; // Solo si estado = CONFIRMADA
+    private String mensaje;     // Motivo si estado = RECHAZADA
+}
@@ -4,4 +4,9 @@ public class BusinessRuleException extends RuntimeException {
     public BusinessRuleException(String message) {
         super(message);
     }
+
+    // Sin traza: para rechazos frecuentes y esperados, donde la traza no aporta nada
+    protected BusinessRuleException(String message, boolean conTraza) {
+        super(message, null, false, conTraza);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones;
+
+// Reserva rechazada por una de las reglas de negocio; se responde igual que BusinessRuleException (400)
+// No rellena la traza: en las aperturas de clases la mayoría de las reservas se rechazan
+public class ReservaRechazadaException extends BusinessRuleException {
+    private final String regla;
+
+    public ReservaRechazadaException(String regla, String message) {
+        super(message, false);
+        this.regla = regla;
+    }
+
+    public String getRegla() {
+        return regla;
+    }
+}
@@ -0,0 +1,7 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones;
+
+public class ServicioSaturadoException extends RuntimeException {
+    public ServicioSaturadoException(String message) {
+        super(message);
+    }
+}
@@ -2,8 +2,12 @@ package es.juanbosco.ruben.proyecto_final_gimasio_2;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@EnableCaching
 public class ProyectoFinalGimasio2Application {
 
     public static void main(String[] args) {
@@ -1,30 +1,90 @@
 package es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios;
 
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Bono;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BonoRepository extends JpaRepository<Bono, Long> {
 
-    @Query("SELECT b FROM Bono b WHERE b.socio.idSocio = :idSocio")
+    // Los listados de bonos traen socio y entrenador en la misma sentencia (lo que necesita BonoDTO)
+    @Override
+    @EntityGraph(attributePaths = {"socio", "entrenador"})
+    Page<Bono> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"socio", "entrenador"})
+    Optional<Bono> findById(Long id);
+
+    // JOIN FETCH y no @EntityGraph: con un @Query que filtra por b.socio Hibernate reutiliza esa unión
+    // para el grafo sin unir la tabla de entrenadores (SQL no válido)
+    @Query("SELECT b FROM Bono b JOIN FETCH b.socio s LEFT JOIN FETCH s.plan JOIN FETCH b.entrenador " +
+            "WHERE s.idSocio = :idSocio")
     List<Bono> findBySocioId(@Param("idSocio") Long idSocio);
 
     @Query("SELECT b FROM Bono b WHERE b.entrenador.idSocio = :idEntrenador")
     List<Bono> findByEntrenadorId(@Param("idEntrenador") Long idEntrenador);
 
-    @Query("SELECT b FROM Bono b WHERE " +
-            "(:idSocio IS NULL OR b.socio.idSocio = :idSocio) AND " +
-            "(:activo IS NULL OR b.activo = :activo)")
+    @Query(value = "SELECT b FROM Bono b JOIN FETCH b.socio s LEFT JOIN FETCH s.plan JOIN FETCH b.entrenador WHERE " +
+            "(:idSocio IS NULL OR s.idSocio = :idSocio) AND " +
+            "(:activo IS NULL OR b.activo = :activo)",
+            countQuery = "SELECT COUNT(b) FROM Bono b WHERE " +
+                    "(:idSocio IS NULL OR b.socio.idSocio = :idSocio) AND " +
+                    "(:activo IS NULL OR b.activo = :activo)")
     Page<Bono> findByFiltros(
             @Param("idSocio") Long idSocio,
             @Param("activo") Boolean activo,
             Pageable pageable
     );
-}
\ No newline at end of file
+
+    // Consume una sesión solo si el bono está activo y le quedan sesiones
+    // (el bono se desactiva en la misma sentencia al gastar la última)
+    @Modifying
+    @Query("UPDATE Bono b SET " +
+            "b.activo = CASE WHEN b.sesionesRestantes > 1 THEN true ELSE false END, " +
+            "b.sesionesRestantes = b.sesionesRestantes - 1 " +
+            "WHERE b.idBono = :idBono AND b.activo = true AND b.sesionesRestantes > 0")
+    int consumirSesion(@Param("idBono") Long idBono);
+
+    // Devuelve una sesión y reactiva el bono sin superar nunca las sesiones totales
+    @Modifying
+    @Query("UPDATE Bono b SET b.sesionesRestantes = b.sesionesRestantes + 1, b.activo = true " +
+            "WHERE b.idBono = :idBono AND b.sesionesRestantes < b.sesionesTotales")
+    int devolverSesion(@Param("idBono") Long idBono);
+
+    // Listado por cursor (keyset): bonos con id mayor que "after", ordenados por id
+    @Query("SELECT b FROM Bono b JOIN FETCH b.socio s LEFT JOIN FETCH s.plan JOIN FETCH b.entrenador " +
+            "WHERE b.idBono > :after AND " +
+            "(:idSocio IS NULL OR s.idSocio = :idSocio) AND " +
+            "(:activo IS NULL OR b.activo = :activo) " +
+            "ORDER BY b.idBono")
+    List<Bono> findSiguientes(
+            @Param("after") Long after,
+            @Param("idSocio") Long idSocio,
+            @Param("activo") Boolean activo,
+            Pageable pageable
+    );
+
+    // Exportación: bonos con socio y entrenador en streaming, por orden de id.
+    // Hay que consumir el Stream dentro de una transacción y cerrarlo al terminar
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT b FROM Bono b JOIN FETCH b.socio s LEFT JOIN FETCH s.plan JOIN FETCH b.entrenador " +
+            "WHERE (:activo IS NULL OR b.activo = :activo) ORDER BY b.idBono")
+    Stream<Bono> streamParaExportar(@Param("activo") Boolean activo);
+}
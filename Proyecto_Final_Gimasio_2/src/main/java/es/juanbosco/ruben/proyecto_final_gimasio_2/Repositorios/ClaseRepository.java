@@ -1,21 +1,48 @@
 package es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios;
 
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Clase;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Entrenador;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Horario;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ClaseRepository extends JpaRepository<Clase, Long> {
 
+    // Las consultas de clases traen horario y entrenador en la misma sentencia (JOIN)
+    // para montar los DTO sin una consulta extra por clase
+    @Override
+    @EntityGraph(attributePaths = {"horario", "entrenador"})
+    List<Clase> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = {"horario", "entrenador"})
+    Page<Clase> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"horario", "entrenador"})
+    Optional<Clase> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = {"horario", "entrenador"})
+    List<Clase> findAllById(Iterable<Long> ids);
+
     boolean existsByNombre(String nombre);
 
+    @EntityGraph(attributePaths = {"horario", "entrenador"})
     @Query("SELECT c FROM Clase c WHERE " +
             "(:nombre IS NULL OR LOWER(c.nombre) LIKE LOWER(CONCAT('%', :nombre, '%'))) AND " +
             "(:fechaClase IS NULL OR c.fechaClase = :fechaClase) AND " +
@@ -27,7 +54,103 @@ public interface ClaseRepository extends JpaRepository<Clase, Long> {
             Pageable pageable
     );
 
-    @Query("SELECT c FROM Clase c WHERE c.esPrivada = false " +
-            "ORDER BY SIZE(c.reservas) DESC")
-    List<Clase> findClasesPopulares(Pageable pageable);
-}
\ No newline at end of file
+
+    // Ocupa una plaza solo si queda aforo libre (devuelve 1 si se ha podido ocupar)
+    @Modifying
+    @Query("UPDATE Clase c SET c.plazasOcupadas = c.plazasOcupadas + 1 " +
+            "WHERE c.idClase = :idClase AND c.plazasOcupadas < c.aforoMaximo")
+    int ocuparPlaza(@Param("idClase") Long idClase);
+
+    // Libera una plaza ocupada (nunca baja de 0)
+    @Modifying
+    @Query("UPDATE Clase c SET c.plazasOcupadas = c.plazasOcupadas - 1 " +
+            "WHERE c.idClase = :idClase AND c.plazasOcupadas > 0")
+    int liberarPlaza(@Param("idClase") Long idClase);
+
+    // Libera una plaza en cada una de las clases indicadas (reservas que se borran juntas)
+    @Modifying
+    @Query("UPDATE Clase c SET c.plazasOcupadas = c.plazasOcupadas - 1 " +
+            "WHERE c.idClase IN :idsClase AND c.plazasOcupadas > 0")
+    int liberarPlazas(@Param("idsClase") Collection<Long> idsClase);
+
+    // Recalcula el contador de plazas a partir de las reservas, solo en las clases que aún no han terminado
+    // (las terminadas ya no admiten reservas y el completado las deja a 0)
+    @Modifying
+    @Query("UPDATE Clase c SET c.plazasOcupadas = " +
+            "(SELECT COUNT(r) FROM Reserva r WHERE r.clase = c AND r.estado = :estado) " +
+            "WHERE c.fechaClase > :hoy OR (c.fechaClase = :hoy AND " +
+            "EXISTS (SELECT h FROM Horario h WHERE h = c.horario AND h.horaFin >= :hora))")
+    int recalcularPlazasOcupadas(
+            @Param("estado") EstadoReserva estado,
+            @Param("hoy") LocalDate hoy,
+            @Param("hora") LocalTime hora
+    );
+
+    // Clases ya terminadas que todavía tienen reservas confirmadas, de la que terminó antes a la última
+    // Se mira si existe la reserva y no el contador de plazas, que podría no coincidir con las reservas
+    @Query("SELECT c.idClase FROM Clase c JOIN c.horario h WHERE " +
+            "(c.fechaClase < :hoy OR (c.fechaClase = :hoy AND h.horaFin < :hora)) AND " +
+            "EXISTS (SELECT r FROM Reserva r WHERE r.clase = c AND r.estado = :estado) " +
+            "ORDER BY c.fechaClase, h.horaFin, c.idClase")
+    List<Long> findIdsClasesTerminadasConReservas(
+            @Param("hoy") LocalDate hoy,
+            @Param("hora") LocalTime hora,
+            @Param("estado") EstadoReserva estado,
+            Pageable pageable
+    );
+
+    @Modifying
+    @Query("UPDATE Clase c SET c.plazasOcupadas = 0 WHERE c.idClase IN :idsClase")
+    int vaciarPlazas(@Param("idsClase") List<Long> idsClase);
+
+    // Plazas de las clases indicadas para el aviso de disponibilidad: [idClase, fechaClase, aforoMaximo, plazasOcupadas]
+    @Query("SELECT c.idClase, c.fechaClase, c.aforoMaximo, c.plazasOcupadas FROM Clase c WHERE c.idClase IN :idsClase")
+    List<Object[]> findDisponibilidadByIds(@Param("idsClase") Collection<Long> idsClase);
+
+    // Plazas de las clases de un día (estado inicial de una pantalla): [idClase, fechaClase, aforoMaximo, plazasOcupadas]
+    @Query("SELECT c.idClase, c.fechaClase, c.aforoMaximo, c.plazasOcupadas FROM Clase c WHERE c.fechaClase = :fecha")
+    List<Object[]> findDisponibilidadByFecha(@Param("fecha") LocalDate fecha);
+
+    // Clases de varios días para el calendario, por día y hora de inicio:
+    // [fechaClase, idClase, nombre, esPrivada, aforoMaximo, plazasOcupadas, idHorario, horaInicio, horaFin]
+    @Query("SELECT c.fechaClase, c.idClase, c.nombre, c.esPrivada, c.aforoMaximo, c.plazasOcupadas, " +
+            "h.idHorario, h.horaInicio, h.horaFin FROM Clase c JOIN c.horario h " +
+            "WHERE c.fechaClase IN :fechas ORDER BY c.fechaClase, h.horaInicio, c.idClase")
+    List<Object[]> findCalendarioByFechas(@Param("fechas") Collection<LocalDate> fechas);
+
+    // Clases de varios días para el índice de agenda: [fechaClase, idClase, idEntrenador, horaInicio, horaFin]
+    @Query("SELECT c.fechaClase, c.idClase, c.entrenador.idSocio, h.horaInicio, h.horaFin FROM Clase c JOIN c.horario h " +
+            "WHERE c.fechaClase IN :fechas")
+    List<Object[]> findIntervalosByFechas(@Param("fechas") Collection<LocalDate> fechas);
+
+    // Nombres que ya están en uso (comprobación de todas las sesiones de una serie en una consulta)
+    @Query("SELECT c.nombre FROM Clase c WHERE c.nombre IN :nombres")
+    List<String> findNombresExistentes(@Param("nombres") Collection<String> nombres);
+
+    // Sesiones de una serie desde una fecha que no tienen ninguna reserva
+    @Query("SELECT c.idClase FROM Clase c WHERE c.serie.idSerie = :idSerie AND c.fechaClase >= :desde " +
+            "AND NOT EXISTS (SELECT r FROM Reserva r WHERE r.clase = c)")
+    List<Long> findIdsSinReservasBySerie(@Param("idSerie") Long idSerie, @Param("desde") LocalDate desde);
+
+    // Sesiones de una serie desde una fecha: [idClase, fechaClase]
+    @Query("SELECT c.idClase, c.fechaClase FROM Clase c WHERE c.serie.idSerie = :idSerie AND c.fechaClase >= :desde")
+    List<Object[]> findFechasBySerie(@Param("idSerie") Long idSerie, @Param("desde") LocalDate desde);
+
+    long countBySerieIdSerieAndFechaClaseGreaterThanEqual(Long idSerie, LocalDate desde);
+
+    @Modifying
+    @Query("DELETE FROM Clase c WHERE c.idClase IN :idsClase")
+    int deleteByIdClaseIn(@Param("idsClase") List<Long> idsClase);
+
+    // Cambia horario y entrenador de todas las sesiones de una serie desde una fecha
+    @Modifying
+    @Query("UPDATE Clase c SET c.horario = :horario, c.duracion = :duracion, c.entrenador = :entrenador " +
+            "WHERE c.serie.idSerie = :idSerie AND c.fechaClase >= :desde")
+    int updateHorarioYEntrenadorBySerie(
+            @Param("idSerie") Long idSerie,
+            @Param("desde") LocalDate desde,
+            @Param("horario") Horario horario,
+            @Param("duracion") Integer duracion,
+            @Param("entrenador") Entrenador entrenador
+    );
+}
@@ -1,5 +1,7 @@
 package es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios;
 
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.EntrenadorReferenciaDTO;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,6 +10,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Entrenador;
 
+import java.util.Optional;
+
 @Repository
 public interface EntrenadorRepository extends JpaRepository<Entrenador, Long> {
 
@@ -17,4 +21,13 @@ public interface EntrenadorRepository extends JpaRepository<Entrenador, Long> {
             @Param("especialidad") String especialidad,
             Pageable pageable
     );
+
+    // Búsqueda por id cacheada (caché "entrenadores") de los datos del entrenador, no de la entidad: una entidad
+    // gestionada no se puede compartir entre sesiones. Para enlazar o modificar un entrenador usar findById.
+    // Se invalida desde DatosReferenciaService
+    @Cacheable(value = "entrenadores", unless = "#result == null")
+    @Query("SELECT new es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.EntrenadorReferenciaDTO(" +
+            "e.idSocio, e.nombre, e.apellidos, e.email, e.telefono, e.fechaAlta, e.esActivo, e.especialidad) " +
+            "FROM Entrenador e WHERE e.idSocio = :idSocio")
+    Optional<EntrenadorReferenciaDTO> findReferenciaById(@Param("idSocio") Long idSocio);
 }
\ No newline at end of file
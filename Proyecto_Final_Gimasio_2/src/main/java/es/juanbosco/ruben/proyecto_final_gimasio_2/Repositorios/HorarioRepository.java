@@ -1,9 +1,23 @@
 package es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios;
 
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.HorarioReferenciaDTO;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Horario;
 
+import java.util.Optional;
+
 @Repository
 public interface HorarioRepository extends JpaRepository<Horario, Long> {
+
+    // Búsqueda por id cacheada (caché "horarios") de los datos del horario, no de la entidad: una entidad
+    // gestionada no se puede compartir entre sesiones. Para enlazar o modificar un horario usar findById.
+    // Se invalida desde DatosReferenciaService
+    @Cacheable(value = "horarios", unless = "#result == null")
+    @Query("SELECT new es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.HorarioReferenciaDTO(h.idHorario, h.horaInicio, h.horaFin) " +
+            "FROM Horario h WHERE h.idHorario = :idHorario")
+    Optional<HorarioReferenciaDTO> findReferenciaById(@Param("idHorario") Long idHorario);
 }
\ No newline at end of file
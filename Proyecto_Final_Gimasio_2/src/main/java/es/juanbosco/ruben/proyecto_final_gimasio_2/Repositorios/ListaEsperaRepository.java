@@ -0,0 +1,40 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.ListaEspera;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ListaEsperaRepository extends JpaRepository<ListaEspera, Long> {
+
+    // Primero de la lista de una clase, bloqueado hasta el fin de la transacción
+    // (dos cancelaciones simultáneas no pueden promocionar al mismo socio)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @EntityGraph(attributePaths = {"socio", "socio.plan"})
+    Optional<ListaEspera> findFirstByClaseIdClaseOrderByIdEsperaAsc(Long idClase);
+
+    @Query("SELECT e FROM ListaEspera e WHERE e.clase.idClase = :idClase AND e.socio.idSocio = :idSocio")
+    Optional<ListaEspera> findByClaseIdAndSocioId(@Param("idClase") Long idClase, @Param("idSocio") Long idSocio);
+
+    boolean existsByClaseIdClaseAndSocioIdSocio(Long idClase, Long idSocio);
+
+    // Posición en la lista: socios apuntados antes (o a la vez) en la misma clase
+    @Query("SELECT COUNT(e) FROM ListaEspera e WHERE e.clase.idClase = :idClase AND e.idEspera <= :idEspera")
+    long countPosicion(@Param("idClase") Long idClase, @Param("idEspera") Long idEspera);
+
+    @Modifying
+    @Query("DELETE FROM ListaEspera e WHERE e.clase.idClase = :idClase")
+    int deleteByClaseId(@Param("idClase") Long idClase);
+
+    @Modifying
+    @Query("DELETE FROM ListaEspera e WHERE e.socio.idSocio = :idSocio")
+    int deleteBySocioId(@Param("idSocio") Long idSocio);
+}
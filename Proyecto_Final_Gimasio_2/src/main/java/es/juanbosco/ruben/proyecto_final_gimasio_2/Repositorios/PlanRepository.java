@@ -2,6 +2,7 @@ package es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios;
 
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Plan;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.TipoPlan;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -10,5 +11,9 @@ import java.util.Optional;
 @Repository
 public interface PlanRepository extends JpaRepository<Plan, TipoPlan> {
     Optional<Plan> findByTipo(TipoPlan tipo);
+
+    // Cacheado (caché "planes"): se guarda solo si existe, no la entidad. Para enlazar el plan a un socio
+    // basta con getReferenceById (el id es el tipo). Se invalida desde DatosReferenciaService
+    @Cacheable(value = "planes", unless = "!#result")
     boolean existsByTipo(TipoPlan tipo);
 }
\ No newline at end of file
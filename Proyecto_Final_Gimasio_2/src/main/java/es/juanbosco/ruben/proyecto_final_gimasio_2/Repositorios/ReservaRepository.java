@@ -1,19 +1,58 @@
 package es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ContextoReservaDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Reserva;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ReservaRepository extends JpaRepository<Reserva, Long> {
 
+    // Los listados de reservas traen clase, horario de la clase, socio y bono en la misma sentencia
+    // (lo que necesita ReservaDTO); el resto de asociaciones quedan sin cargar
+    @Override
+    @EntityGraph(attributePaths = {"clase", "clase.horario", "socio", "bono"})
+    Page<Reserva> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"clase", "clase.horario", "socio", "bono"})
+    Optional<Reserva> findById(Long id);
+
+    // Todo lo que necesita ReservaService.create en una sola consulta: la clase con su horario, el socio con
+    // su plan y, si se indica, el bono con su entrenador. Vacío si no existe la clase o el socio.
+    @Query("SELECT new es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ContextoReservaDTO(" +
+            "c.idClase, c.nombre, c.fechaClase, c.esPrivada, c.aforoMaximo, c.plazasOcupadas, c.entrenador.idSocio, " +
+            "h.idHorario, h.horaInicio, h.horaFin, " +
+            "s.idSocio, s.nombre, s.apellidos, s.esActivo, p.tipo, " +
+            "b.idBono, b.socio.idSocio, be.idSocio, be.esActivo, b.activo, b.sesionesRestantes) " +
+            "FROM Clase c JOIN c.horario h, Socio s LEFT JOIN s.plan p " +
+            "LEFT JOIN Bono b ON b.idBono = :idBono LEFT JOIN b.entrenador be " +
+            "WHERE c.idClase = :idClase AND s.idSocio = :idSocio")
+    Optional<ContextoReservaDTO> findContexto(
+            @Param("idClase") Long idClase,
+            @Param("idSocio") Long idSocio,
+            @Param("idBono") Long idBono
+    );
+
     @Query("SELECT COUNT(r) FROM Reserva r WHERE r.clase.idClase = :idClase AND r.estado = :estado")
     long countByClaseIdAndEstado(@Param("idClase") Long idClase, @Param("estado") EstadoReserva estado);
 
@@ -23,9 +62,33 @@ public interface ReservaRepository extends JpaRepository<Reserva, Long> {
     @Query("SELECT r FROM Reserva r WHERE r.clase.idClase = :idClase")
     List<Reserva> findByClaseId(@Param("idClase") Long idClase);
 
-    @Query("SELECT r FROM Reserva r WHERE " +
-            "(:idSocio IS NULL OR r.socio.idSocio = :idSocio) AND " +
-            "(:estado IS NULL OR r.estado = :estado)")
+    // Reservas no canceladas de un socio o de un bono con su clase y horario (se liberan antes de borrarlo)
+    @Query("SELECT r FROM Reserva r JOIN FETCH r.clase c JOIN FETCH c.horario JOIN FETCH c.entrenador " +
+            "JOIN FETCH r.socio s LEFT JOIN FETCH s.plan LEFT JOIN FETCH r.bono b " +
+            "WHERE s.idSocio = :idSocio AND r.estado <> :estadoExcluido")
+    List<Reserva> findBySocioIdAndEstadoNot(
+            @Param("idSocio") Long idSocio,
+            @Param("estadoExcluido") EstadoReserva estadoExcluido
+    );
+
+    @Query("SELECT r FROM Reserva r JOIN FETCH r.clase c JOIN FETCH c.horario JOIN FETCH c.entrenador " +
+            "JOIN FETCH r.socio s LEFT JOIN FETCH s.plan JOIN FETCH r.bono b " +
+            "WHERE b.idBono = :idBono AND r.estado <> :estadoExcluido")
+    List<Reserva> findByBonoIdAndEstadoNot(
+            @Param("idBono") Long idBono,
+            @Param("estadoExcluido") EstadoReserva estadoExcluido
+    );
+
+    // Las asociaciones se traen con JOIN FETCH y no con @EntityGraph: con un @Query que filtra por
+    // r.socio Hibernate reutiliza esa unión para el grafo sin unir la tabla de entrenadores (SQL no válido)
+    @Query(value = "SELECT r FROM Reserva r " +
+            "JOIN FETCH r.clase c JOIN FETCH c.horario JOIN FETCH c.entrenador " +
+            "JOIN FETCH r.socio s LEFT JOIN FETCH s.plan LEFT JOIN FETCH r.bono WHERE " +
+            "(:idSocio IS NULL OR s.idSocio = :idSocio) AND " +
+            "(:estado IS NULL OR r.estado = :estado)",
+            countQuery = "SELECT COUNT(r) FROM Reserva r WHERE " +
+                    "(:idSocio IS NULL OR r.socio.idSocio = :idSocio) AND " +
+                    "(:estado IS NULL OR r.estado = :estado)")
     Page<Reserva> findByFiltros(
             @Param("idSocio") Long idSocio,
             @Param("estado") EstadoReserva estado,
@@ -34,4 +97,110 @@ public interface ReservaRepository extends JpaRepository<Reserva, Long> {
 
     // Verifica si ya existe una reserva confirmada para un socio en una clase específica
     boolean existsByClaseIdClaseAndSocioIdSocioAndEstado(Long idClase, Long idSocio, EstadoReserva estado);
-}
\ No newline at end of file
+
+    // Igual, pero con lectura bloqueante: ve lo último confirmado en la BD aunque la transacción
+    // ya tenga una instantánea anterior (REPEATABLE READ)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r.idReserva FROM Reserva r " +
+            "WHERE r.clase.idClase = :idClase AND r.socio.idSocio = :idSocio AND r.estado = :estado")
+    List<Long> bloquearIdsByClaseIdAndSocioIdAndEstado(
+            @Param("idClase") Long idClase,
+            @Param("idSocio") Long idSocio,
+            @Param("estado") EstadoReserva estado
+    );
+
+    @Query("SELECT r.socio.idSocio FROM Reserva r WHERE r.clase.idClase = :idClase AND r.estado = :estado")
+    List<Long> findIdsSocioByClaseIdAndEstado(@Param("idClase") Long idClase, @Param("estado") EstadoReserva estado);
+
+    // Cambia de estado todas las reservas de las clases indicadas en una sola sentencia
+    @Modifying
+    @Query("UPDATE Reserva r SET r.estado = :nuevoEstado " +
+            "WHERE r.estado = :estadoActual AND r.clase.idClase IN :idsClase")
+    int updateEstadoByClaseIds(
+            @Param("idsClase") List<Long> idsClase,
+            @Param("estadoActual") EstadoReserva estadoActual,
+            @Param("nuevoEstado") EstadoReserva nuevoEstado
+    );
+
+    // Reservas de un día en un estado para el control de acceso:
+    // [idReserva, idSocio, idClase, nombreClase, horaInicio, horaFin, fechaCheckin]
+    @Query("SELECT r.idReserva, r.socio.idSocio, c.idClase, c.nombre, h.horaInicio, h.horaFin, r.fechaCheckin " +
+            "FROM Reserva r JOIN r.clase c JOIN c.horario h WHERE c.fechaClase = :fecha AND r.estado = :estado")
+    List<Object[]> findAccesosByFecha(@Param("fecha") LocalDate fecha, @Param("estado") EstadoReserva estado);
+
+    // Lo mismo para un solo socio (reservas que todavía no estaban en memoria)
+    @Query("SELECT r.idReserva, r.socio.idSocio, c.idClase, c.nombre, h.horaInicio, h.horaFin, r.fechaCheckin " +
+            "FROM Reserva r JOIN r.clase c JOIN c.horario h " +
+            "WHERE c.fechaClase = :fecha AND r.estado = :estado AND r.socio.idSocio = :idSocio")
+    List<Object[]> findAccesosBySocioAndFecha(
+            @Param("idSocio") Long idSocio,
+            @Param("fecha") LocalDate fecha,
+            @Param("estado") EstadoReserva estado
+    );
+
+    // Guarda la hora de entrada de las reservas que aún no la tenían
+    @Modifying
+    @Query("UPDATE Reserva r SET r.fechaCheckin = :hora WHERE r.idReserva IN :idsReserva AND r.fechaCheckin IS NULL")
+    int registrarCheckin(@Param("idsReserva") List<Long> idsReserva, @Param("hora") LocalDateTime hora);
+
+    // Reservas de varios días en un estado para el índice de agenda: [fechaClase, idSocio, idClase, horaInicio, horaFin]
+    @Query("SELECT c.fechaClase, r.socio.idSocio, c.idClase, h.horaInicio, h.horaFin FROM Reserva r JOIN r.clase c JOIN c.horario h " +
+            "WHERE c.fechaClase IN :fechas AND r.estado = :estado")
+    List<Object[]> findIntervalosSociosByFechas(@Param("fechas") Collection<LocalDate> fechas, @Param("estado") EstadoReserva estado);
+
+    // Reservas de las clases grupales de hoy en adelante, excluyendo un estado: [idClase, fechaClase, total]
+    @Query("SELECT r.clase.idClase, r.clase.fechaClase, COUNT(r) FROM Reserva r " +
+            "WHERE r.clase.esPrivada = false AND r.estado <> :estadoExcluido AND r.clase.fechaClase >= :hoy " +
+            "GROUP BY r.clase.idClase, r.clase.fechaClase")
+    List<Object[]> countGrupalesPorClase(
+            @Param("estadoExcluido") EstadoReserva estadoExcluido,
+            @Param("hoy") LocalDate hoy
+    );
+
+    // Reservas de las clases grupales de hoy en adelante por clase y día de reserva desde una fecha:
+    // [idClase, dia, total]
+    @Query("SELECT r.clase.idClase, CAST(r.fechaReservar AS LocalDate), COUNT(r) FROM Reserva r " +
+            "WHERE r.clase.esPrivada = false AND r.estado <> :estadoExcluido AND r.fechaReservar >= :desde " +
+            "AND r.clase.fechaClase >= :hoy " +
+            "GROUP BY r.clase.idClase, CAST(r.fechaReservar AS LocalDate)")
+    List<Object[]> countGrupalesPorClaseYDia(
+            @Param("estadoExcluido") EstadoReserva estadoExcluido,
+            @Param("desde") LocalDateTime desde,
+            @Param("hoy") LocalDate hoy
+    );
+
+    // Listado por cursor (keyset): reservas con id mayor que "after", ordenadas por id
+    // Pedir la página con PageRequest.of(0, size) para que solo se aplique el LIMIT
+    @Query("SELECT r FROM Reserva r " +
+            "JOIN FETCH r.clase c JOIN FETCH c.horario JOIN FETCH c.entrenador " +
+            "JOIN FETCH r.socio s LEFT JOIN FETCH s.plan LEFT JOIN FETCH r.bono " +
+            "WHERE r.idReserva > :after AND " +
+            "(:idSocio IS NULL OR s.idSocio = :idSocio) AND " +
+            "(:estado IS NULL OR r.estado = :estado) " +
+            "ORDER BY r.idReserva")
+    List<Reserva> findSiguientes(
+            @Param("after") Long after,
+            @Param("idSocio") Long idSocio,
+            @Param("estado") EstadoReserva estado,
+            Pageable pageable
+    );
+
+    // Exportación: reservas (con clase, horario, entrenador, socio y bono) en streaming, por orden de id.
+    // Hay que consumir el Stream dentro de una transacción y cerrarlo al terminar
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Reserva r " +
+            "JOIN FETCH r.clase c JOIN FETCH c.horario JOIN FETCH c.entrenador " +
+            "JOIN FETCH r.socio s LEFT JOIN FETCH s.plan LEFT JOIN FETCH r.bono " +
+            "WHERE (:desde IS NULL OR r.fechaReservar >= :desde) " +
+            "AND (:hasta IS NULL OR r.fechaReservar < :hasta) " +
+            "AND (:estado IS NULL OR r.estado = :estado) " +
+            "ORDER BY r.idReserva")
+    Stream<Reserva> streamParaExportar(
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta,
+            @Param("estado") EstadoReserva estado
+    );
+}
@@ -0,0 +1,23 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.SerieClases;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SerieClasesRepository extends JpaRepository<SerieClases, Long> {
+
+    boolean existsByNombre(String nombre);
+
+    // Series activas a las que les faltan sesiones por generar hasta la fecha indicada
+    @Query("SELECT s.idSerie FROM SerieClases s WHERE s.activa = true " +
+            "AND (s.generadaHasta IS NULL OR s.generadaHasta < :hasta) " +
+            "AND (s.fechaFin IS NULL OR s.generadaHasta IS NULL OR s.generadaHasta < s.fechaFin) " +
+            "ORDER BY s.idSerie")
+    List<Long> findIdsPendientesDeAmpliar(@Param("hasta") LocalDate hasta);
+}
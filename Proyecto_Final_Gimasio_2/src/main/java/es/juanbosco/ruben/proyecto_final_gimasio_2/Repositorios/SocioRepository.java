@@ -1,14 +1,20 @@
 package es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios;
 
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Socio;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SocioRepository extends JpaRepository<Socio, Long> {
@@ -17,9 +23,12 @@ public interface SocioRepository extends JpaRepository<Socio, Long> {
 
     boolean existsByEmail(String email);
 
+    // Los listados de socios traen el plan en la misma sentencia (lo que necesita SocioDTO)
+    @EntityGraph(attributePaths = {"plan"})
     @Query("SELECT s FROM Socio s WHERE s.esActivo = true")
     Page<Socio> findAllActivos(Pageable pageable);
 
+    @EntityGraph(attributePaths = {"plan"})
     @Query("SELECT s FROM Socio s WHERE " +
             "(:nombre IS NULL OR LOWER(s.nombre) LIKE LOWER(CONCAT('%', :nombre, '%'))) AND " +
             "(:email IS NULL OR LOWER(s.email) LIKE LOWER(CONCAT('%', :email, '%'))) AND " +
@@ -31,6 +40,33 @@ public interface SocioRepository extends JpaRepository<Socio, Long> {
             Pageable pageable
     );
 
+    @EntityGraph(attributePaths = {"plan"})
     @Query("SELECT s FROM Socio s WHERE TYPE(s) = Socio")
     Page<Socio> findOnlySocios(Pageable pageable);
-}
\ No newline at end of file
+
+    // Listado por cursor (keyset): socios (sin entrenadores) con id mayor que "after", ordenados por id
+    @EntityGraph(attributePaths = {"plan"})
+    @Query("SELECT s FROM Socio s WHERE TYPE(s) = Socio AND s.idSocio > :after AND " +
+            "(:esActivo IS NULL OR s.esActivo = :esActivo) " +
+            "ORDER BY s.idSocio")
+    List<Socio> findSiguientes(
+            @Param("after") Long after,
+            @Param("esActivo") Boolean esActivo,
+            Pageable pageable
+    );
+
+    // Exportación: socios (sin entrenadores) con su plan en streaming, por orden de id.
+    // Hay que consumir el Stream dentro de una transacción y cerrarlo al terminar
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM Socio s LEFT JOIN FETCH s.plan WHERE TYPE(s) = Socio " +
+            "AND (:esActivo IS NULL OR s.esActivo = :esActivo) ORDER BY s.idSocio")
+    Stream<Socio> streamParaExportar(@Param("esActivo") Boolean esActivo);
+
+    // Emails de todos los socios y entrenadores (en minúsculas), para la importación masiva
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT LOWER(s.email) FROM Socio s")
+    Stream<String> streamEmails();
+}
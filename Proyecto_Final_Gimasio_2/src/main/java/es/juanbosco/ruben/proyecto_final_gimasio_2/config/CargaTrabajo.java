@@ -0,0 +1,25 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.config;
+
+// Tipo de carga de la petición en curso
+// Decide qué pool de conexiones y qué compartimento de concurrencia usa cada hilo,
+// así los listados no pueden dejar sin conexiones a las reservas (ni al revés)
+public enum CargaTrabajo {
+    ESCRITURA,  // reservas, bonos y demás operaciones que modifican datos (y tareas en segundo plano)
+    LECTURA;    // listados y consultas (peticiones GET)
+
+    private static final ThreadLocal<CargaTrabajo> ACTUAL = new ThreadLocal<>();
+
+    // Carga del hilo actual; ESCRITURA si no se ha indicado (tareas programadas, cola de reservas...)
+    public static CargaTrabajo actual() {
+        CargaTrabajo carga = ACTUAL.get();
+        return carga != null ? carga : ESCRITURA;
+    }
+
+    public static void establecer(CargaTrabajo carga) {
+        ACTUAL.set(carga);
+    }
+
+    public static void limpiar() {
+        ACTUAL.remove();
+    }
+}
@@ -0,0 +1,65 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+// Pools de conexiones separados por tipo de carga (ver CargaTrabajo)
+// Los pools de escritura y lectura apuntan a la BD principal (spring.datasource.*) y cada uno tiene
+// su propio tamaño máximo (gimnasio.datasource.escritura.* y gimnasio.datasource.lectura.*), así un
+// listado lento no puede quedarse con las conexiones que necesitan las reservas.
+// Si se configura gimnasio.datasource.replica.jdbc-url, las transacciones de solo lectura
+// (@Transactional(readOnly = true)) van a la réplica.
+// Hikari publica las métricas de cada pool (hikaricp.connections.* con la etiqueta pool).
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("gimnasio.datasource.escritura")
+    public HikariDataSource poolEscritura(DataSourceProperties properties) {
+        return crearPool(properties, "escritura");
+    }
+
+    @Bean
+    @ConfigurationProperties("gimnasio.datasource.lectura")
+    public HikariDataSource poolLectura(DataSourceProperties properties) {
+        return crearPool(properties, "lectura");
+    }
+
+    // Réplica de solo lectura; mismas credenciales que la principal salvo que se indiquen otras
+    @Bean
+    @ConditionalOnProperty(name = "gimnasio.datasource.replica.jdbc-url")
+    @ConfigurationProperties("gimnasio.datasource.replica")
+    public HikariDataSource poolReplica(DataSourceProperties properties) {
+        return crearPool(properties, "replica");
+    }
+
+    // DataSource que usa JPA: elige el pool según la transacción y la carga del hilo.
+    // El proxy retrasa la obtención de la conexión hasta la primera sentencia, cuando ya se sabe
+    // si la transacción es de solo lectura.
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource poolEscritura, HikariDataSource poolLectura,
+                                 @Qualifier("poolReplica") ObjectProvider<HikariDataSource> poolReplica) {
+        EnrutadorDataSource enrutador = new EnrutadorDataSource(poolEscritura, poolLectura, poolReplica.getIfAvailable());
+        enrutador.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(enrutador);
+    }
+
+    private static HikariDataSource crearPool(DataSourceProperties properties, String nombre) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        pool.setPoolName(nombre);
+        return pool;
+    }
+}
@@ -0,0 +1,72 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Elige el pool de cada conexión:
+//  - transacción de solo lectura y hay réplica -> réplica (si no responde, pool de lectura de la principal)
+//    salvo en los hilos marcados con leerDePrincipal
+//  - resto -> pool de escritura o de lectura de la principal según la carga del hilo (CargaTrabajo)
+class EnrutadorDataSource extends AbstractRoutingDataSource {
+    private static final Logger logger = LoggerFactory.getLogger(EnrutadorDataSource.class);
+
+    private static final String REPLICA = "replica";
+
+    // Hilos que leen de la principal aunque la transacción sea de solo lectura
+    private static final ThreadLocal<Boolean> SOLO_PRINCIPAL = new ThreadLocal<>();
+
+    private final DataSource poolLectura;
+    private final boolean hayReplica;
+
+    EnrutadorDataSource(DataSource poolEscritura, DataSource poolLectura, DataSource poolReplica) {
+        this.poolLectura = poolLectura;
+        this.hayReplica = poolReplica != null;
+
+        Map<Object, Object> pools = new HashMap<>();
+        pools.put(CargaTrabajo.ESCRITURA, poolEscritura);
+        pools.put(CargaTrabajo.LECTURA, poolLectura);
+        if (hayReplica) {
+            pools.put(REPLICA, poolReplica);
+        }
+        setTargetDataSources(pools);
+        setDefaultTargetDataSource(poolEscritura);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (hayReplica && SOLO_PRINCIPAL.get() == null && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return REPLICA;
+        }
+        return CargaTrabajo.actual();
+    }
+
+    // Las lecturas del hilo actual no van a la réplica (hasta limpiarLecturaPrincipal)
+    static void leerDePrincipal() {
+        SOLO_PRINCIPAL.set(Boolean.TRUE);
+    }
+
+    static void limpiarLecturaPrincipal() {
+        SOLO_PRINCIPAL.remove();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        try {
+            return super.getConnection();
+        } catch (SQLException e) {
+            if (!REPLICA.equals(determineCurrentLookupKey())) {
+                throw e;
+            }
+            logger.warn("La réplica no responde, se lee de la BD principal: {}", e.getMessage());
+            return poolLectura.getConnection();
+        }
+    }
+}
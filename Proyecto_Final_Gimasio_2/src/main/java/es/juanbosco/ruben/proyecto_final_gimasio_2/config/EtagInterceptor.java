@@ -0,0 +1,74 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.config;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.Coleccion;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.VersionesColeccionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Peticiones condicionales para los GET de clases (y calendario), horarios, planes y entrenadores
+// El ETag es la versión de la colección (VersionesColeccionService) más la URL con sus parámetros;
+// si coincide con If-None-Match se responde 304 antes de llegar al controlador (sin consultas ni JSON).
+// Cache-Control: no-cache -> el cliente puede guardar la respuesta pero debe revalidarla siempre.
+// Si la petición sigue hasta el controlador lee de la BD principal y no de la réplica: la versión cambia
+// al confirmar en la principal, y una réplica con retraso devolvería datos antiguos con el ETag nuevo
+// (el cliente recibiría 304 para ellos hasta la siguiente escritura).
+@Component
+public class EtagInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private VersionesColeccionService versionesColeccionService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        Coleccion coleccion = coleccion(request.getRequestURI().substring(request.getContextPath().length()));
+        if (coleccion == null) {
+            return true;
+        }
+
+        String url = request.getQueryString() == null
+                ? request.getRequestURI()
+                : request.getRequestURI() + "?" + request.getQueryString();
+        String etag = "\"" + coleccion.name().toLowerCase() + "-"
+                + Long.toHexString(versionesColeccionService.version(coleccion)) + "-"
+                + Integer.toHexString(url.hashCode()) + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        // Si no ha cambiado deja la respuesta en 304 y corta la petición
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return false;
+        }
+        EnrutadorDataSource.leerDePrincipal();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        EnrutadorDataSource.limpiarLecturaPrincipal();
+    }
+
+    private static Coleccion coleccion(String ruta) {
+        if (ruta.startsWith("/api/clases") || ruta.startsWith("/api/calendario")) {
+            return Coleccion.CLASES;
+        }
+        if (ruta.startsWith("/api/horarios")) {
+            return Coleccion.HORARIOS;
+        }
+        if (ruta.startsWith("/api/planes")) {
+            return Coleccion.PLANES;
+        }
+        if (ruta.startsWith("/api/entrenadores")) {
+            return Coleccion.ENTRENADORES;
+        }
+        return null;
+    }
+}
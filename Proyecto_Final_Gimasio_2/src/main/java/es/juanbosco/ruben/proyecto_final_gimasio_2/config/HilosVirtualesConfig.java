@@ -0,0 +1,21 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+
+// Atiende cada petición HTTP en un hilo virtual (Java 21) en lugar del pool de hilos de Tomcat
+// Se activa con gimnasio.hilos-virtuales.enabled=true. El límite real de concurrencia lo ponen
+// los compartimentos de LimitadorCargaInterceptor y los pools de DataSourceConfig.
+@Configuration
+@ConditionalOnProperty(name = "gimnasio.hilos-virtuales.enabled", havingValue = "true")
+public class HilosVirtualesConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> hilosVirtualesTomcat() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
@@ -0,0 +1,124 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.config;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ServicioSaturadoException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Compartimentos de concurrencia por tipo de carga (bulkheads)
+// Cada petición /api/** ocupa un permiso del compartimento de su carga (GET = LECTURA, el resto = ESCRITURA)
+// y marca el hilo para que use el pool de conexiones correspondiente. Si el compartimento está lleno
+// la petición espera como mucho "espera-max-ms" y después se rechaza con 503, en lugar de acumular
+// hilos esperando conexión.
+// Métricas: gimnasio.carga.en-uso, gimnasio.carga.esperando y gimnasio.carga.rechazadas (etiqueta carga)
+@Component
+public class LimitadorCargaInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ATRIBUTO_PERMISO = LimitadorCargaInterceptor.class.getName() + ".permiso";
+
+    private final Map<CargaTrabajo, Compartimento> compartimentos = new EnumMap<>(CargaTrabajo.class);
+    private final long esperaMaxMs;
+
+    public LimitadorCargaInterceptor(
+            MeterRegistry registry,
+            @Value("${gimnasio.carga.escritura.maximo-concurrentes:100}") int maxEscritura,
+            @Value("${gimnasio.carga.lectura.maximo-concurrentes:50}") int maxLectura,
+            @Value("${gimnasio.carga.espera-max-ms:1000}") long esperaMaxMs) {
+        this.esperaMaxMs = esperaMaxMs;
+        compartimentos.put(CargaTrabajo.ESCRITURA, new Compartimento(CargaTrabajo.ESCRITURA, maxEscritura, registry));
+        compartimentos.put(CargaTrabajo.LECTURA, new Compartimento(CargaTrabajo.LECTURA, maxLectura, registry));
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Las peticiones asíncronas (streaming) vuelven a pasar por aquí al terminar; ya se contaron al empezar
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        CargaTrabajo carga = clasificar(request);
+        Compartimento compartimento = compartimentos.get(carga);
+        if (!compartimento.entrar(esperaMaxMs)) {
+            throw new ServicioSaturadoException("El servidor está saturado. Inténtelo de nuevo en unos segundos");
+        }
+        request.setAttribute(ATRIBUTO_PERMISO, compartimento);
+        CargaTrabajo.establecer(carga);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        salir(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        salir(request);
+    }
+
+    private void salir(HttpServletRequest request) {
+        Object compartimento = request.getAttribute(ATRIBUTO_PERMISO);
+        if (compartimento != null) {
+            request.removeAttribute(ATRIBUTO_PERMISO);
+            ((Compartimento) compartimento).salir();
+        }
+        CargaTrabajo.limpiar();
+    }
+
+    private static CargaTrabajo clasificar(HttpServletRequest request) {
+        String metodo = request.getMethod();
+        return HttpMethod.GET.matches(metodo) || HttpMethod.HEAD.matches(metodo)
+                ? CargaTrabajo.LECTURA
+                : CargaTrabajo.ESCRITURA;
+    }
+
+    // Semáforo de un tipo de carga con sus métricas
+    private static class Compartimento {
+        private final Semaphore permisos;
+        private final Counter rechazadas;
+
+        Compartimento(CargaTrabajo carga, int maximo, MeterRegistry registry) {
+            this.permisos = new Semaphore(maximo, true);
+            String etiqueta = carga.name().toLowerCase();
+            Gauge.builder("gimnasio.carga.en-uso", permisos, s -> maximo - s.availablePermits())
+                    .description("Peticiones en curso del compartimento")
+                    .tag("carga", etiqueta)
+                    .register(registry);
+            Gauge.builder("gimnasio.carga.esperando", permisos, Semaphore::getQueueLength)
+                    .description("Peticiones esperando un hueco en el compartimento")
+                    .tag("carga", etiqueta)
+                    .register(registry);
+            this.rechazadas = Counter.builder("gimnasio.carga.rechazadas")
+                    .description("Peticiones rechazadas por compartimento lleno")
+                    .tag("carga", etiqueta)
+                    .register(registry);
+        }
+
+        boolean entrar(long esperaMaxMs) {
+            try {
+                if (permisos.tryAcquire(esperaMaxMs, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            rechazadas.increment();
+            return false;
+        }
+
+        void salir() {
+            permisos.release();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+// Ids por secuencia con asignación por bloques
+// Socio, Reserva, Bono, Clase y Horario usan una secuencia con allocationSize = 50: Hibernate reserva
+// 50 ids con una sola llamada y puede agrupar los INSERT en lotes (hibernate.jdbc.batch_size).
+// Con IDENTITY cada INSERT se lanzaba en el momento para conocer el id y no había lotes.
+// Migración: las tablas creadas con AUTO_INCREMENT ya tienen ids, así que al arrancar (después de
+// que Hibernate cree las secuencias con ddl-auto) se adelanta cada secuencia hasta el máximo id de
+// su tabla. SETVAL nunca hace retroceder una secuencia: repetirlo en cada arranque o desde varias
+// instancias a la vez no tiene efecto.
+@Configuration
+@DependsOn("entityManagerFactory")
+public class SecuenciasIdsConfig {
+    private static final Logger logger = LoggerFactory.getLogger(SecuenciasIdsConfig.class);
+
+    private static final List<Secuencia> SECUENCIAS = List.of(
+            new Secuencia("socios_seq", "socios", "id_socio"),
+            new Secuencia("reservas_seq", "reservas", "id_reserva"),
+            new Secuencia("bonos_seq", "bonos", "id_bono"),
+            new Secuencia("clases_seq", "clases", "id_clase"),
+            new Secuencia("horarios_seq", "horarios", "id_horario")
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void ajustarSecuencias() {
+        for (Secuencia secuencia : SECUENCIAS) {
+            try {
+                Long maximo = jdbcTemplate.queryForObject(
+                        "SELECT COALESCE(MAX(" + secuencia.columna() + "), 0) FROM " + secuencia.tabla(), Long.class);
+                if (maximo != null && maximo > 0) {
+                    jdbcTemplate.execute("SELECT SETVAL(" + secuencia.nombre() + ", " + maximo + ")");
+                }
+            } catch (DataAccessException e) {
+                logger.warn("No se ha podido ajustar la secuencia {}: {}", secuencia.nombre(), e.getMessage());
+            }
+        }
+        logger.info("Secuencias de ids ajustadas a los ids existentes.");
+    }
+
+    private record Secuencia(String nombre, String tabla, String columna) {
+    }
+}
@@ -0,0 +1,27 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private EtagInterceptor etagInterceptor;
+
+    @Autowired
+    private LimitadorCargaInterceptor limitadorCargaInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Primero el ETag: un 304 no ocupa hueco en los compartimentos de carga
+        // Los huecos de un entrenador dependen de las clases y de la hora actual, no de su versión
+        // El stream de disponibilidad es una conexión abierta, no una respuesta que se pueda revalidar
+        registry.addInterceptor(etagInterceptor)
+                .addPathPatterns("/api/clases/**", "/api/calendario/**", "/api/horarios/**", "/api/planes/**", "/api/entrenadores/**")
+                .excludePathPatterns("/api/clases/*/lista-espera/**", "/api/clases/disponibilidad/**", "/api/entrenadores/*/huecos");
+        registry.addInterceptor(limitadorCargaInterceptor).addPathPatterns("/api/**");
+    }
+}
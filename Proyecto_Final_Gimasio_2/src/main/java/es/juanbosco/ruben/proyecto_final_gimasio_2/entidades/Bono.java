@@ -18,7 +18,8 @@ import java.util.List;
 public class Bono {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bonos_seq")
+    @SequenceGenerator(name = "bonos_seq", sequenceName = "bonos_seq", allocationSize = 50)
     private Long idBono;
 
     @ManyToOne
@@ -59,13 +60,4 @@ public class Bono {
             sesionesRestantes = sesionesTotales;
         }
     }
-
-    public void decrementarSesion() {
-        if (sesionesRestantes > 0) {
-            sesionesRestantes--;
-            if (sesionesRestantes == 0) {
-                activo = false;
-            }
-        }
-    }
 }
\ No newline at end of file
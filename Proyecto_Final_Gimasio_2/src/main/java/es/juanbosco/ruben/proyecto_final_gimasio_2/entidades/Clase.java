@@ -1,5 +1,6 @@
 package es.juanbosco.ruben.proyecto_final_gimasio_2.entidades;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -19,7 +20,8 @@ import java.util.List;
 public class Clase {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "clases_seq")
+    @SequenceGenerator(name = "clases_seq", sequenceName = "clases_seq", allocationSize = 50)
     private Long idClase;
 
     @Column(nullable = false, unique = true, length = 100)
@@ -40,6 +42,10 @@ public class Clase {
     @Column(nullable = false)
     private Integer duracion;
 
+    // Plazas ocupadas por reservas confirmadas (lo mantiene AsignacionPlazasService)
+    @Column(nullable = false, columnDefinition = "INT DEFAULT 0")
+    private Integer plazasOcupadas = 0;
+
     @ManyToOne
     @JoinColumn(name = "id_horario", nullable = false)
     @JsonIgnoreProperties("clases")
@@ -50,6 +56,12 @@ public class Clase {
     @JsonIgnoreProperties("clases")
     private Entrenador entrenador;
 
+    // Serie a la que pertenece la clase (null = clase suelta)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_serie")
+    @JsonIgnore
+    private SerieClases serie;
+
     @OneToMany(mappedBy = "clase", cascade = CascadeType.ALL)
     @JsonIgnoreProperties("clase")
     private List<Reserva> reservas = new ArrayList<>();
@@ -68,6 +80,10 @@ public class Clase {
             throw new IllegalArgumentException("La duración calculada debe estar entre 15 y 180 minutos");
         }
 
+        if (plazasOcupadas == null) {
+            plazasOcupadas = 0;
+        }
+
         // Si es clase privada, el aforo máximo es siempre 1
         if (esPrivada) {
             aforoMaximo = 1;
@@ -18,7 +18,8 @@ import java.util.List;
 public class Horario {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "horarios_seq")
+    @SequenceGenerator(name = "horarios_seq", sequenceName = "horarios_seq", allocationSize = 50)
     private Long idHorario;
 
     @Column(nullable = false)
@@ -0,0 +1,46 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.entidades;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Socio esperando plaza en una clase grupal completa
+// El orden de la lista es el del id (orden de llegada)
+@Entity
+@Table(name = "lista_espera",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"id_clase", "id_socio"}),
+        indexes = @Index(name = "idx_lista_espera_clase", columnList = "id_clase, id_espera"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListaEspera {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_espera")
+    private Long idEspera;
+
+    @ManyToOne
+    @JoinColumn(name = "id_clase", nullable = false)
+    @JsonIgnoreProperties("reservas")
+    private Clase clase;
+
+    @ManyToOne
+    @JoinColumn(name = "id_socio", nullable = false)
+    @JsonIgnoreProperties({"reservas", "bonos"})
+    private Socio socio;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaAlta;
+
+    @PrePersist
+    protected void onCreate() {
+        if (fechaAlta == null) {
+            fechaAlta = LocalDateTime.now();
+        }
+    }
+}
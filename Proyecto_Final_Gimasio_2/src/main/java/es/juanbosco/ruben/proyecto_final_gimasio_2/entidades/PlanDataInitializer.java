@@ -3,6 +3,7 @@ package es.juanbosco.ruben.proyecto_final_gimasio_2.entidades;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.PlanRepository;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.SocioRepository;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.TipoPlan;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.servicios.DatosReferenciaService;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
@@ -27,6 +28,8 @@ public class PlanDataInitializer implements ApplicationRunner {
     private PlanRepository planRepository;
     @Autowired
     private SocioRepository socioRepository;
+    @Autowired
+    private DatosReferenciaService datosReferenciaService;
 
     @Override
     @Transactional
@@ -34,6 +37,7 @@ public class PlanDataInitializer implements ApplicationRunner {
         logger.info("Ejecutando PlanDataInitializer...");
         ensurePlan(TipoPlan.BASICO);
         ensurePlan(TipoPlan.PREMIUM);
+        datosReferenciaService.invalidarPlanes();
         logger.info("Planes iniciales comprobados/creados.");
     }
 
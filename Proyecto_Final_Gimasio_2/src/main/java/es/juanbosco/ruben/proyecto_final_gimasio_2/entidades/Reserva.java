@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 public class Reserva {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservas_seq")
+    @SequenceGenerator(name = "reservas_seq", sequenceName = "reservas_seq", allocationSize = 50)
     private Long idReserva;
 
     @ManyToOne
@@ -42,6 +43,10 @@ public class Reserva {
     @Column(nullable = false)
     private EstadoReserva estado = EstadoReserva.CONFIRMADA;
 
+    // Entrada del socio por el torno (null = no ha venido)
+    @Column
+    private LocalDateTime fechaCheckin;
+
 
     @PrePersist
     protected void onCreate() {
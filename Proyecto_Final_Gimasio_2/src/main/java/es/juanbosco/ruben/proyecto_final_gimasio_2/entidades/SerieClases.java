@@ -0,0 +1,71 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.entidades;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+// Serie de clases que se repite cada semana (mismos días, horario, entrenador y aforo)
+// Cada sesión es una Clase normal con nombre "<nombre de la serie> <fecha>" que apunta a la serie.
+// Las sesiones se generan hasta generadaHasta; el proceso programado de SerieClasesService
+// va ampliando ese horizonte mientras la serie esté activa y no se pase de fechaFin.
+@Entity
+@Table(name = "series_clases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SerieClases {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "series_clases_seq")
+    @SequenceGenerator(name = "series_clases_seq", sequenceName = "series_clases_seq", allocationSize = 50)
+    private Long idSerie;
+
+    @Column(nullable = false, unique = true, length = 85)
+    private String nombre;
+
+    @Column(length = 500)
+    private String descripcion;
+
+    @Column(nullable = false)
+    private Boolean esPrivada = false;
+
+    @Column
+    private Integer aforoMaximo;
+
+    @ManyToOne
+    @JoinColumn(name = "id_horario", nullable = false)
+    @JsonIgnoreProperties("clases")
+    private Horario horario;
+
+    @ManyToOne
+    @JoinColumn(name = "id_entrenador", nullable = false)
+    @JsonIgnoreProperties("clases")
+    private Entrenador entrenador;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "series_clases_dias", joinColumns = @JoinColumn(name = "id_serie"))
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dia_semana", nullable = false, length = 10)
+    private Set<DayOfWeek> diasSemana = new HashSet<>();
+
+    @Column(nullable = false)
+    private LocalDate fechaInicio;
+
+    // null = sin fecha de fin
+    @Column
+    private LocalDate fechaFin;
+
+    // Último día para el que ya se han generado las sesiones
+    @Column
+    private LocalDate generadaHasta;
+
+    @Column(nullable = false)
+    private Boolean activa = true;
+}
@@ -19,7 +19,8 @@ import java.util.List;
 public class Socio {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "socios_seq")
+    @SequenceGenerator(name = "socios_seq", sequenceName = "socios_seq", allocationSize = 50)
     private Long idSocio;
 
     @Column(nullable = false, length = 100)
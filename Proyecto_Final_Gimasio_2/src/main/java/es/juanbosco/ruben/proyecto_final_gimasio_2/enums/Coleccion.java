@@ -0,0 +1,9 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.enums;
+
+// Colecciones de la API con versión para las peticiones condicionales (ETag)
+public enum Coleccion {
+    CLASES,
+    HORARIOS,
+    PLANES,
+    ENTRENADORES
+}
@@ -0,0 +1,7 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.enums;
+
+public enum EstadoSolicitud {
+    EN_COLA,
+    CONFIRMADA,
+    RECHAZADA
+}
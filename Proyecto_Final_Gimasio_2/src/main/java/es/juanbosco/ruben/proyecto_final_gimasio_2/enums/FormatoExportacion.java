@@ -0,0 +1,23 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.enums;
+
+// Formatos de las exportaciones masivas
+public enum FormatoExportacion {
+    NDJSON("application/x-ndjson", "ndjson"),  // un objeto JSON por línea
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    FormatoExportacion(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,39 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Utilidad para ejecutar acciones sobre estructuras en memoria cuando termina la transacción actual,
+// de forma que solo reflejen los cambios que realmente se han guardado en la BD
+final class AccionesTransaccion {
+
+    private AccionesTransaccion() {
+    }
+
+    // Ejecuta la acción tras el commit (o inmediatamente si no hay transacción activa)
+    static void alConfirmar(Runnable accion) {
+        alTerminar(true, accion);
+    }
+
+    // Ejecuta la acción si la transacción se deshace (sin transacción activa no hace nada)
+    static void alDeshacer(Runnable accion) {
+        alTerminar(false, accion);
+    }
+
+    private static void alTerminar(boolean enCommit, Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (enCommit) {
+                accion.run();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if ((status == STATUS_COMMITTED) == enCommit) {
+                    accion.run();
+                }
+            }
+        });
+    }
+}
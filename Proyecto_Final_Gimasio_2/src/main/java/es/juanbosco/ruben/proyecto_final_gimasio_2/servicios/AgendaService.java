@@ -0,0 +1,277 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.HuecoDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ClaseRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ReservaRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Clase;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Índice en memoria de la agenda de cada día para detectar solapes de horario
+// Por cada fecha guarda los intervalos de cada entrenador (clases que imparte) y de cada socio
+// (clases con reserva confirmada), ordenados por hora de inicio. Una comprobación recorre los intervalos
+// de la persona que empiezan antes de la hora de fin pedida (unos pocos por día) y no consulta la BD.
+// Un día se carga de la BD (dos consultas) la primera vez que se usa; los rangos de días que faltan
+// se cargan juntos con las mismas dos consultas. Se guardan como máximo gimnasio.agenda.max-dias días
+// y los demás se vuelven a cargar cuando hagan falta.
+// Las altas se anotan en el momento (así dos reservas simultáneas no pasan las dos) y se deshacen si
+// la transacción falla; las bajas y las invalidaciones se aplican al confirmar.
+@Service
+public class AgendaService {
+    private static final Comparator<Intervalo> ORDEN =
+            Comparator.comparing(Intervalo::inicio).thenComparing(Intervalo::idClase);
+
+    // Repositorio de clases
+    @Autowired
+    private ClaseRepository claseRepository;
+    // Repositorio de reservas
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    private final LoadingCache<LocalDate, Dia> dias;
+
+    // Horario de apertura del gimnasio (límites de los huecos libres)
+    private final LocalTime apertura;
+    private final LocalTime cierre;
+    private final Set<DayOfWeek> diasCerrado = EnumSet.noneOf(DayOfWeek.class);
+
+    public AgendaService(@Value("${gimnasio.agenda.max-dias:400}") long maxDias,
+                         @Value("${gimnasio.horario.apertura:07:00}") String apertura,
+                         @Value("${gimnasio.horario.cierre:22:00}") String cierre,
+                         @Value("${gimnasio.horario.dias-cerrado:}") List<String> diasCerrado) {
+        this.apertura = LocalTime.parse(apertura);
+        this.cierre = LocalTime.parse(cierre);
+        if (!this.apertura.isBefore(this.cierre)) {
+            throw new IllegalStateException("gimnasio.horario.apertura debe ser anterior a gimnasio.horario.cierre");
+        }
+        diasCerrado.stream()
+                .filter(dia -> !dia.isBlank())
+                .forEach(dia -> this.diasCerrado.add(DayOfWeek.valueOf(dia.trim().toUpperCase(Locale.ROOT))));
+        this.dias = Caffeine.newBuilder()
+                .maximumSize(maxDias)
+                .build(new CacheLoader<LocalDate, Dia>() {
+                    @Override
+                    public Dia load(LocalDate fecha) {
+                        return cargarDias(List.of(fecha)).get(fecha);
+                    }
+
+                    @Override
+                    public Map<LocalDate, Dia> loadAll(Set<? extends LocalDate> fechas) {
+                        return cargarDias(fechas);
+                    }
+                });
+    }
+
+    // Anota la clase en la agenda de su entrenador
+    // Devuelve el id de la clase con la que se solapa (sin anotarla) o null si el hueco estaba libre
+    public Long ocuparEntrenador(Clase clase) {
+        Dia dia = dias.get(clase.getFechaClase());
+        return ocupar(dia, dia.entrenadores, clase.getEntrenador().getIdSocio(), intervalo(clase));
+    }
+
+    // Anota la clase en la agenda del socio (reserva confirmada); mismo resultado que ocuparEntrenador
+    public Long ocuparSocio(Long idSocio, Clase clase) {
+        Dia dia = dias.get(clase.getFechaClase());
+        return ocupar(dia, dia.socios, idSocio, intervalo(clase));
+    }
+
+    // Igual que ocuparSocio(idSocio, clase) con los datos de la clase sueltos (sin cargar la entidad)
+    public Long ocuparSocio(Long idSocio, Long idClase, LocalDate fecha, LocalTime inicio, LocalTime fin) {
+        Dia dia = dias.get(fecha);
+        return ocupar(dia, dia.socios, idSocio, new Intervalo(inicio, fin, idClase));
+    }
+
+    // Deshace en el momento un ocuparSocio (p. ej. si después no se ha podido ocupar la plaza)
+    public void quitarSocio(Long idSocio, Clase clase) {
+        quitarSocio(idSocio, clase.getIdClase(), clase.getFechaClase(),
+                clase.getHorario().getHoraInicio(), clase.getHorario().getHoraFin());
+    }
+
+    // Igual que quitarSocio(idSocio, clase) con los datos de la clase sueltos
+    public void quitarSocio(Long idSocio, Long idClase, LocalDate fecha, LocalTime inicio, LocalTime fin) {
+        Dia dia = dias.get(fecha);
+        Intervalo intervalo = new Intervalo(inicio, fin, idClase);
+        synchronized (dia) {
+            NavigableSet<Intervalo> agenda = dia.socios.get(idSocio);
+            if (agenda != null) {
+                agenda.remove(intervalo);
+            }
+        }
+    }
+
+    // Libera el hueco del socio al confirmar (reserva cancelada o borrada)
+    public void liberarSocio(Long idSocio, Clase clase) {
+        AccionesTransaccion.alConfirmar(() -> quitarSocio(idSocio, clase));
+    }
+
+    // Carga de una vez los días indicados que no estén en memoria (antes de comprobar muchas fechas seguidas)
+    public void precargar(Collection<LocalDate> fechas) {
+        dias.getAll(fechas);
+    }
+
+    // Busca, sin anotar nada, una clase del entrenador que se solape con el intervalo indicado
+    // idClaseExcluida: clase que no cuenta como solape (la propia clase cuando se cambia de horario)
+    public Long buscarSolapeEntrenador(Long idEntrenador, LocalDate fecha, LocalTime inicio, LocalTime fin, Long idClaseExcluida) {
+        Dia dia = dias.get(fecha);
+        synchronized (dia) {
+            NavigableSet<Intervalo> agenda = dia.entrenadores.get(idEntrenador);
+            return agenda == null ? null : solape(agenda, new Intervalo(inicio, fin, idClaseExcluida));
+        }
+    }
+
+    // Quita la clase (entrenador y socios) de la agenda al confirmar su borrado
+    public void olvidarClase(LocalDate fecha, Long idClase) {
+        AccionesTransaccion.alConfirmar(() -> {
+            Dia dia = dias.getIfPresent(fecha);
+            if (dia != null) {
+                synchronized (dia) {
+                    dia.entrenadores.values().forEach(agenda -> agenda.removeIf(i -> i.idClase().equals(idClase)));
+                    dia.socios.values().forEach(agenda -> agenda.removeIf(i -> i.idClase().equals(idClase)));
+                }
+            }
+        });
+    }
+
+    // Huecos libres del entrenador entre dos fechas (ambas incluidas) de al menos duracionMinutos
+    // Un hueco es un tramo dentro del horario de apertura en el que no imparte ninguna clase ni tiene
+    // reservada una como socio. Por cada día se recorren sus intervalos ordenados restando cada uno al
+    // tramo de apertura; los días que no estén en memoria se cargan todos juntos.
+    // Los huecos de hoy empiezan como pronto a la hora actual; los días cerrados no tienen huecos.
+    public List<HuecoDTO> huecosEntrenador(Long idEntrenador, LocalDate desde, LocalDate hasta, int duracionMinutos) {
+        List<LocalDate> fechas = desde.datesUntil(hasta.plusDays(1))
+                .filter(fecha -> !diasCerrado.contains(fecha.getDayOfWeek()))
+                .toList();
+        Map<LocalDate, Dia> agenda = dias.getAll(fechas);
+        Duration duracion = Duration.ofMinutes(duracionMinutos);
+        LocalDate hoy = LocalDate.now();
+        LocalTime ahora = LocalTime.now();
+
+        List<HuecoDTO> huecos = new ArrayList<>();
+        for (LocalDate fecha : fechas) {
+            LocalTime cursor = fecha.equals(hoy) && ahora.isAfter(apertura) ? ahora.withSecond(0).withNano(0) : apertura;
+            for (Intervalo ocupado : ocupados(agenda.get(fecha), idEntrenador)) {
+                if (!ocupado.inicio().isAfter(cursor)) {
+                    cursor = ocupado.fin().isAfter(cursor) ? ocupado.fin() : cursor;
+                    continue;
+                }
+                anadirHueco(huecos, fecha, cursor, ocupado.inicio().isBefore(cierre) ? ocupado.inicio() : cierre, duracion);
+                if (!ocupado.fin().isBefore(cierre)) {
+                    cursor = cierre;
+                    break;
+                }
+                cursor = ocupado.fin();
+            }
+            anadirHueco(huecos, fecha, cursor, cierre, duracion);
+        }
+        return huecos;
+    }
+
+    // Descarta todos los días al confirmar (cambios masivos: series, borrado de horarios o entrenadores)
+    // Se recargan de la BD en la siguiente comprobación
+    public void invalidarTodo() {
+        AccionesTransaccion.alConfirmar(dias::invalidateAll);
+    }
+
+    private Long ocupar(Dia dia, Map<Long, NavigableSet<Intervalo>> agendas, Long idPersona, Intervalo intervalo) {
+        NavigableSet<Intervalo> agenda;
+        synchronized (dia) {
+            agenda = agendas.computeIfAbsent(idPersona, id -> new TreeSet<>(ORDEN));
+            Long conflicto = solape(agenda, intervalo);
+            if (conflicto != null) {
+                return conflicto;
+            }
+            agenda.add(intervalo);
+        }
+        AccionesTransaccion.alDeshacer(() -> {
+            synchronized (dia) {
+                agenda.remove(intervalo);
+            }
+        });
+        return null;
+    }
+
+    // Intervalos ocupados por la persona ese día (como entrenador y como socio), ordenados por inicio
+    // Se copian bajo el bloqueo del día para recorrerlos sin bloquear las reservas
+    private static List<Intervalo> ocupados(Dia dia, Long idPersona) {
+        List<Intervalo> ocupados = new ArrayList<>();
+        synchronized (dia) {
+            ocupados.addAll(dia.entrenadores.getOrDefault(idPersona, Collections.emptyNavigableSet()));
+            ocupados.addAll(dia.socios.getOrDefault(idPersona, Collections.emptyNavigableSet()));
+        }
+        ocupados.sort(ORDEN);
+        return ocupados;
+    }
+
+    private static void anadirHueco(List<HuecoDTO> huecos, LocalDate fecha, LocalTime inicio, LocalTime fin, Duration duracion) {
+        if (Duration.between(inicio, fin).compareTo(duracion) >= 0) {
+            huecos.add(new HuecoDTO(fecha, inicio, fin));
+        }
+    }
+
+    // Se solapa cualquier intervalo que empiece antes de que acabe el nuevo y acabe después de que empiece
+    // (saltando la propia clase, que no cuenta como solape). No basta con mirar el último que empieza antes:
+    // los datos cargados de la BD pueden tener intervalos solapados entre sí (uno largo antes de uno corto)
+    private static Long solape(NavigableSet<Intervalo> agenda, Intervalo nuevo) {
+        Iterator<Intervalo> anteriores = agenda.headSet(new Intervalo(nuevo.fin(), nuevo.fin(), Long.MIN_VALUE), false)
+                .descendingIterator();
+        while (anteriores.hasNext()) {
+            Intervalo anterior = anteriores.next();
+            if (!anterior.idClase().equals(nuevo.idClase()) && anterior.fin().isAfter(nuevo.inicio())) {
+                return anterior.idClase();
+            }
+        }
+        return null;
+    }
+
+    private static Intervalo intervalo(Clase clase) {
+        return new Intervalo(clase.getHorario().getHoraInicio(), clase.getHorario().getHoraFin(), clase.getIdClase());
+    }
+
+    // Carga de la BD los días indicados (los que no tengan clases quedan vacíos)
+    private Map<LocalDate, Dia> cargarDias(Collection<? extends LocalDate> fechas) {
+        Map<LocalDate, Dia> cargados = new HashMap<>();
+        fechas.forEach(fecha -> cargados.put(fecha, new Dia()));
+        List<LocalDate> consulta = List.copyOf(fechas);
+        for (Object[] fila : claseRepository.findIntervalosByFechas(consulta)) {
+            cargados.get((LocalDate) fila[0]).entrenadores.computeIfAbsent((Long) fila[2], id -> new TreeSet<>(ORDEN))
+                    .add(new Intervalo((LocalTime) fila[3], (LocalTime) fila[4], (Long) fila[1]));
+        }
+        for (Object[] fila : reservaRepository.findIntervalosSociosByFechas(consulta, EstadoReserva.CONFIRMADA)) {
+            cargados.get((LocalDate) fila[0]).socios.computeIfAbsent((Long) fila[1], id -> new TreeSet<>(ORDEN))
+                    .add(new Intervalo((LocalTime) fila[3], (LocalTime) fila[4], (Long) fila[2]));
+        }
+        return cargados;
+    }
+
+    private record Intervalo(LocalTime inicio, LocalTime fin, Long idClase) {
+    }
+
+    // Agenda de un día: id del entrenador o del socio -> sus intervalos ordenados
+    private static class Dia {
+        private final Map<Long, NavigableSet<Intervalo>> entrenadores = new HashMap<>();
+        private final Map<Long, NavigableSet<Intervalo>> socios = new HashMap<>();
+    }
+}
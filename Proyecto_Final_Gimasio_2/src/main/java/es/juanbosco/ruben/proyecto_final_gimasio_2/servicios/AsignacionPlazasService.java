@@ -0,0 +1,162 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ClaseRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ReservaRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Reserva;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.Coleccion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Servicio de asignación de plazas de las clases
+// El aforo se controla con un contador (clases.plazas_ocupadas) que solo se incrementa
+// mediante un UPDATE condicional, así dos reservas simultáneas no pueden ocupar la última plaza.
+// Los asistentes confirmados de cada clase se guardan en memoria para rechazar los duplicados
+// sin consultar la tabla de reservas. Son de esta instancia, así que solo sirven de filtro rápido:
+// la comprobación definitiva es sinReservaConfirmada, en la BD.
+// El contador se mantiene en cada alta, cancelación y borrado de reservas; recalcularPlazas es una tarea
+// de mantenimiento explícita (p. ej. al migrar una BD anterior al contador), no se ejecuta al arrancar.
+@Service
+@Transactional
+public class AsignacionPlazasService {
+    private static final Logger logger = LoggerFactory.getLogger(AsignacionPlazasService.class);
+
+    // Repositorio de clases
+    @Autowired
+    private ClaseRepository claseRepository;
+    // Repositorio de reservas
+    @Autowired
+    private ReservaRepository reservaRepository;
+    // Versiones de las colecciones para los ETag (las plazas libres forman parte de /api/clases)
+    @Autowired
+    private VersionesColeccionService versionesColeccionService;
+    // Aviso en directo de las plazas libres a las pantallas conectadas
+    @Autowired
+    private DisponibilidadClasesService disponibilidadClasesService;
+    // Calendario de clases en memoria
+    @Autowired
+    private CalendarioService calendarioService;
+
+    // idClase -> ids de los socios con reserva confirmada (se carga bajo demanda)
+    private final Map<Long, Set<Long>> asistentesPorClase = new ConcurrentHashMap<>();
+
+    // Recalcula desde las reservas el contador de plazas de las clases que todavía no han terminado
+    // Devuelve el número de clases recalculadas
+    public int recalcularPlazas() {
+        LocalDateTime ahora = LocalDateTime.now();
+        int clases = claseRepository.recalcularPlazasOcupadas(
+                EstadoReserva.CONFIRMADA, ahora.toLocalDate(), ahora.toLocalTime());
+        versionesColeccionService.registrarCambio(Coleccion.CLASES);
+        calendarioService.invalidarTodo();
+        logger.info("Plazas ocupadas recalculadas para {} clases.", clases);
+        return clases;
+    }
+
+    // Registra al socio como asistente de la clase
+    // Devuelve false si ya tenía una reserva confirmada; si la transacción falla se deshace el registro
+    public boolean registrarAsistente(Long idClase, Long idSocio) {
+        Set<Long> asistentes = getAsistentes(idClase);
+        if (!asistentes.add(idSocio)) {
+            return false;
+        }
+        AccionesTransaccion.alDeshacer(() -> asistentes.remove(idSocio));
+        return true;
+    }
+
+    // Comprueba en la BD que el socio no tiene ya una reserva confirmada en la clase
+    // (con varias instancias otra puede haberla confirmado sin que los asistentes de esta lo sepan).
+    // Hay que llamarla después de ocuparPlaza: el UPDATE de la plaza deja bloqueada la fila de la clase
+    // hasta el final de la transacción, así las reservas de una misma clase pasan de una en una por
+    // esta comprobación desde cualquier instancia.
+    public boolean sinReservaConfirmada(Long idClase, Long idSocio) {
+        if (reservaRepository.bloquearIdsByClaseIdAndSocioIdAndEstado(idClase, idSocio, EstadoReserva.CONFIRMADA).isEmpty()) {
+            return true;
+        }
+        // Los asistentes en memoria de la clase estaban desfasados: se vuelven a cargar la próxima vez
+        AccionesTransaccion.alConfirmar(() -> asistentesPorClase.remove(idClase));
+        AccionesTransaccion.alDeshacer(() -> asistentesPorClase.remove(idClase));
+        return false;
+    }
+
+    // Indica si el socio tiene reserva confirmada en la clase
+    public boolean esAsistente(Long idClase, Long idSocio) {
+        return getAsistentes(idClase).contains(idSocio);
+    }
+
+    // Deshace en el momento un registrarAsistente (p. ej. si después no se ha podido ocupar la plaza)
+    public void quitarAsistente(Long idClase, Long idSocio) {
+        getAsistentes(idClase).remove(idSocio);
+    }
+
+    // Ocupa una plaza de la clase si queda aforo libre
+    public boolean ocuparPlaza(Long idClase) {
+        if (claseRepository.ocuparPlaza(idClase) != 1) {
+            return false;
+        }
+        versionesColeccionService.registrarCambio(Coleccion.CLASES);
+        disponibilidadClasesService.notificarCambio(idClase);
+        calendarioService.ajustarPlazas(idClase, 1);
+        return true;
+    }
+
+    // Libera la plaza del socio en la clase (cancelación o borrado de una reserva confirmada)
+    public void liberarPlaza(Long idClase, Long idSocio) {
+        if (claseRepository.liberarPlaza(idClase) == 1) {
+            calendarioService.ajustarPlazas(idClase, -1);
+        }
+        versionesColeccionService.registrarCambio(Coleccion.CLASES);
+        disponibilidadClasesService.notificarCambio(idClase);
+        AccionesTransaccion.alConfirmar(() -> {
+            Set<Long> asistentes = asistentesPorClase.get(idClase);
+            if (asistentes != null) {
+                asistentes.remove(idSocio);
+            }
+        });
+    }
+
+    // Libera con un solo UPDATE las plazas de varias reservas confirmadas
+    // (borrado de un socio o de un bono, que se lleva sus reservas en cascada)
+    public void liberarPlazas(List<Reserva> reservas) {
+        if (reservas.isEmpty()) {
+            return;
+        }
+        Set<Long> idsClase = new HashSet<>();
+        reservas.forEach(reserva -> idsClase.add(reserva.getClase().getIdClase()));
+        claseRepository.liberarPlazas(idsClase);
+        for (Long idClase : idsClase) {
+            calendarioService.ajustarPlazas(idClase, -1);
+            disponibilidadClasesService.notificarCambio(idClase);
+        }
+        versionesColeccionService.registrarCambio(Coleccion.CLASES);
+        AccionesTransaccion.alConfirmar(() -> reservas.forEach(reserva -> {
+            Set<Long> asistentes = asistentesPorClase.get(reserva.getClase().getIdClase());
+            if (asistentes != null) {
+                asistentes.remove(reserva.getSocio().getIdSocio());
+            }
+        }));
+    }
+
+    // Olvida los asistentes de una clase (clase eliminada o ya impartida)
+    public void olvidarClase(Long idClase) {
+        AccionesTransaccion.alConfirmar(() -> asistentesPorClase.remove(idClase));
+        calendarioService.invalidarClase(idClase);
+    }
+
+    private Set<Long> getAsistentes(Long idClase) {
+        return asistentesPorClase.computeIfAbsent(idClase, id -> {
+            Set<Long> asistentes = ConcurrentHashMap.newKeySet();
+            asistentes.addAll(reservaRepository.findIdsSocioByClaseIdAndEstado(id, EstadoReserva.CONFIRMADA));
+            return asistentes;
+        });
+    }
+}
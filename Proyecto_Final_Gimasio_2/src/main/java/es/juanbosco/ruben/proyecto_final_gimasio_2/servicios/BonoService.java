@@ -2,11 +2,14 @@ package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.BonoCreateDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.BonoDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.PaginaCursorDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ResourceNotFoundException;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.BonoRepository;
@@ -15,6 +18,7 @@ import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.SocioRepository;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Bono;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Entrenador;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Socio;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.FormatoExportacion;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -24,6 +28,17 @@ import java.util.stream.Collectors;
 @Service
 @Transactional
 public class BonoService {
+    // Columnas de la exportación en CSV
+    private static final List<ExportacionService.Columna<BonoDTO>> COLUMNAS_CSV = List.of(
+            new ExportacionService.Columna<>("idBono", BonoDTO::getIdBono),
+            new ExportacionService.Columna<>("idSocio", BonoDTO::getIdSocio),
+            new ExportacionService.Columna<>("nombreSocio", BonoDTO::getNombreSocio),
+            new ExportacionService.Columna<>("sesionesTotales", BonoDTO::getSesionesTotales),
+            new ExportacionService.Columna<>("sesionesRestantes", BonoDTO::getSesionesRestantes),
+            new ExportacionService.Columna<>("idEntrenador", BonoDTO::getIdEntrenador),
+            new ExportacionService.Columna<>("nombreEntrenador", BonoDTO::getNombreEntrenador),
+            new ExportacionService.Columna<>("fechaCompra", BonoDTO::getFechaCompra),
+            new ExportacionService.Columna<>("activo", BonoDTO::getActivo));
 
     // Repositorio de bonos
     @Autowired
@@ -37,19 +52,48 @@ public class BonoService {
     @Autowired
     private EntrenadorRepository entrenadorRepository;
 
+    // Exportación masiva en streaming
+    @Autowired
+    private ExportacionService exportacionService;
+
+    // Liberación de las reservas del bono antes de borrarlo
+    @Autowired
+    private ReservaService reservaService;
+
     // Devuelve todos los bonos paginados
+    @Transactional(readOnly = true)
     public Page<BonoDTO> findAll(Pageable pageable) {
         return bonoRepository.findAll(pageable)
                 .map(this::convertToDTO);
     }
 
     // Busca bonos por filtros (socio, activo)
+    @Transactional(readOnly = true)
     public Page<BonoDTO> findByFiltros(Long idSocio, Boolean activo, Pageable pageable) {
         return bonoRepository.findByFiltros(idSocio, activo, pageable)
                 .map(this::convertToDTO);
     }
 
+    // Listado por cursor: bonos siguientes a "after" (id), sin contar el total
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<BonoDTO> findSiguientes(Long after, Long idSocio, Boolean activo, int size) {
+        if (size < 1 || size > 1000) {
+            throw new BusinessRuleException("El tamaño de página debe estar entre 1 y 1000");
+        }
+        return PaginaCursorDTO.crear(
+                bonoRepository.findSiguientes(after == null ? 0L : after, idSocio, activo, PageRequest.of(0, size + 1)),
+                size, Bono::getIdBono, this::convertToDTO);
+    }
+
+    // Exporta los bonos en NDJSON o CSV (la consulta se ejecuta al escribir la respuesta)
+    public StreamingResponseBody exportar(FormatoExportacion formato, Boolean activo) {
+        return exportacionService.exportar(formato,
+                () -> bonoRepository.streamParaExportar(activo),
+                this::convertToDTO, COLUMNAS_CSV);
+    }
+
     // Devuelve todos los bonos de un socio
+    @Transactional(readOnly = true)
     public List<BonoDTO> findBySocioId(Long idSocio) {
         return bonoRepository.findBySocioId(idSocio).stream()
                 .map(this::convertToDTO)
@@ -57,6 +101,7 @@ public class BonoService {
     }
 
     // Busca bono por ID
+    @Transactional(readOnly = true)
     public BonoDTO findById(Long id) {
         Bono bono = bonoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Bono no encontrado con id: " + id));
@@ -95,6 +140,8 @@ public class BonoService {
         if (!bonoRepository.existsById(id)) {
             throw new ResourceNotFoundException("Bono no encontrado con id: " + id);
         }
+        // Sus reservas se borran en cascada: antes se devuelven sus plazas
+        reservaService.liberarReservasDeBono(id);
         bonoRepository.deleteById(id);
     }
 
@@ -0,0 +1,227 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SocioDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.SocioRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Entrenador;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Socio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Búsqueda instantánea de socios para recepción
+// Mantiene en memoria un índice de trigramas sobre nombre, apellidos, email y teléfono,
+// así una búsqueda por texto parcial no recorre la tabla socios con LIKE '%x%'.
+// Se reconstruye al arrancar y se actualiza desde SocioService al crear, modificar o borrar.
+@Service
+@Transactional
+public class BuscadorSociosService implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(BuscadorSociosService.class);
+
+    private static final int N = 3;
+    private static final int LOTE_CARGA = 1000;
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+    // Repositorio de socios
+    @Autowired
+    private SocioRepository socioRepository;
+
+    // idSocio -> datos indexados del socio
+    private final Map<Long, Documento> documentos = new ConcurrentHashMap<>();
+    // trigrama -> ids de los socios que lo contienen
+    private final Map<String, Set<Long>> indice = new ConcurrentHashMap<>();
+
+    // Carga el índice con todos los socios, por lotes ordenados por id
+    @Override
+    public void run(ApplicationArguments args) {
+        documentos.clear();
+        indice.clear();
+        long after = 0L;
+        List<Socio> lote;
+        do {
+            lote = socioRepository.findSiguientes(after, null, PageRequest.of(0, LOTE_CARGA));
+            for (Socio socio : lote) {
+                agregar(socio);
+                after = socio.getIdSocio();
+            }
+        } while (lote.size() == LOTE_CARGA);
+        logger.info("Índice de búsqueda de socios cargado con {} socios.", documentos.size());
+    }
+
+    // Indexa (o reindexa) el socio cuando se confirma la transacción (los entrenadores no se indexan)
+    public void indexar(Socio socio) {
+        if (socio instanceof Entrenador) {
+            return;
+        }
+        Documento documento = crearDocumento(socio);
+        AccionesTransaccion.alConfirmar(() -> {
+            quitar(documento.dto().getIdSocio());
+            agregar(documento);
+        });
+    }
+
+    // Quita el socio del índice cuando se confirma la transacción
+    public void eliminar(Long idSocio) {
+        AccionesTransaccion.alConfirmar(() -> quitar(idSocio));
+    }
+
+    // Devuelve los socios que contienen el texto en nombre, apellidos, email o teléfono,
+    // ordenados por relevancia (coincidencia al principio del campo, al principio de una palabra...)
+    public List<SocioDTO> buscar(String texto, int limit) {
+        String consulta = normalizar(texto);
+        if (consulta.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Collection<Long> candidatos = consulta.length() < N ? documentos.keySet() : candidatos(consulta);
+
+        List<Resultado> resultados = new ArrayList<>();
+        for (Long idSocio : candidatos) {
+            Documento documento = documentos.get(idSocio);
+            if (documento == null) {
+                continue;
+            }
+            int puntos = documento.puntuar(consulta);
+            if (puntos > 0) {
+                resultados.add(new Resultado(documento, puntos));
+            }
+        }
+
+        return resultados.stream()
+                .sorted(Comparator.comparingInt(Resultado::puntos).reversed()
+                        .thenComparing(r -> r.documento().nombreCompleto().length())
+                        .thenComparing(r -> r.documento().dto().getIdSocio()))
+                .limit(limit)
+                .map(r -> r.documento().dto())
+                .collect(Collectors.toList());
+    }
+
+    // Intersección de las listas de todos los trigramas de la consulta, empezando por la más corta
+    private Collection<Long> candidatos(String consulta) {
+        List<Set<Long>> listas = new ArrayList<>();
+        for (String trigrama : trigramas(consulta)) {
+            Set<Long> ids = indice.get(trigrama);
+            if (ids == null) {
+                return List.of();
+            }
+            listas.add(ids);
+        }
+        listas.sort(Comparator.comparingInt(Set::size));
+        Set<Long> resultado = new HashSet<>(listas.get(0));
+        for (int i = 1; i < listas.size() && !resultado.isEmpty(); i++) {
+            resultado.retainAll(listas.get(i));
+        }
+        return resultado;
+    }
+
+    private void agregar(Socio socio) {
+        agregar(crearDocumento(socio));
+    }
+
+    private void agregar(Documento documento) {
+        Long idSocio = documento.dto().getIdSocio();
+        documentos.put(idSocio, documento);
+        for (String trigrama : documento.trigramas()) {
+            indice.computeIfAbsent(trigrama, t -> ConcurrentHashMap.newKeySet()).add(idSocio);
+        }
+    }
+
+    private void quitar(Long idSocio) {
+        Documento documento = documentos.remove(idSocio);
+        if (documento == null) {
+            return;
+        }
+        for (String trigrama : documento.trigramas()) {
+            Set<Long> ids = indice.get(trigrama);
+            if (ids != null) {
+                ids.remove(idSocio);
+            }
+        }
+    }
+
+    private static Documento crearDocumento(Socio socio) {
+        SocioDTO dto = new SocioDTO();
+        dto.setIdSocio(socio.getIdSocio());
+        dto.setNombre(socio.getNombre());
+        dto.setApellidos(socio.getApellidos());
+        dto.setEmail(socio.getEmail());
+        dto.setTelefono(socio.getTelefono());
+        dto.setFechaAlta(socio.getFechaAlta());
+        dto.setEsActivo(socio.getEsActivo());
+        if (socio.getPlan() != null) {
+            dto.setTipoPlan(socio.getPlan().getTipo().name());
+        }
+
+        String nombreCompleto = normalizar(socio.getNombre() + " " + socio.getApellidos());
+        String email = normalizar(socio.getEmail());
+        String telefono = normalizar(socio.getTelefono());
+
+        Set<String> trigramas = new HashSet<>();
+        trigramas.addAll(trigramas(nombreCompleto));
+        trigramas.addAll(trigramas(email));
+        trigramas.addAll(trigramas(telefono));
+        return new Documento(dto, nombreCompleto, email, telefono, trigramas);
+    }
+
+    private static Set<String> trigramas(String texto) {
+        Set<String> trigramas = new HashSet<>();
+        for (int i = 0; i + N <= texto.length(); i++) {
+            trigramas.add(texto.substring(i, i + N));
+        }
+        return trigramas;
+    }
+
+    // Minúsculas, sin tildes y con los espacios colapsados
+    private static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinTildes = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinTildes.toLowerCase().trim().replaceAll("\\s+", " ");
+    }
+
+    // Datos de un socio en el índice (campos ya normalizados)
+    private record Documento(SocioDTO dto, String nombreCompleto, String email, String telefono, Set<String> trigramas) {
+
+        // 0 si no contiene la consulta; más puntos cuanto antes aparece y si es en el nombre
+        int puntuar(String consulta) {
+            int nombre = puntuarCampo(nombreCompleto, consulta);
+            int otros = Math.max(puntuarCampo(email, consulta), puntuarCampo(telefono, consulta));
+            return nombre > 0 ? Math.max(nombre + 10, otros) : otros;
+        }
+
+        private static int puntuarCampo(String campo, String consulta) {
+            int posicion = campo.indexOf(consulta);
+            if (posicion < 0) {
+                return 0;
+            }
+            if (posicion == 0) {
+                return 100;
+            }
+            char anterior = campo.charAt(posicion - 1);
+            if (anterior == ' ' || anterior == '.' || anterior == '@' || anterior == '_' || anterior == '-') {
+                return 60;
+            }
+            return 20;
+        }
+    }
+
+    private record Resultado(Documento documento, int puntos) {
+    }
+}
@@ -0,0 +1,200 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.CalendarioDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ClaseCalendarioDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.DiaCalendarioDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.HorarioDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ClaseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Calendario de clases por días (qué hay libre esta semana) servido desde memoria
+// Cada día se guarda como una matriz de arrays primitivos (una posición por clase, ordenadas por hora
+// de inicio) con el aforo y las plazas ocupadas. Los días que faltan se cargan juntos con una consulta
+// (plazas_ocupadas ya es el número de reservas confirmadas, no hace falta contar reservas).
+// Las reservas solo suman o restan una plaza en la posición de su clase al confirmar; las altas y bajas
+// de clases descartan el día, que se vuelve a cargar en la siguiente petición.
+// Por si algún cambio se cruzara con la carga de un día, cada día se recarga como mucho cada
+// "expiracion-min" minutos.
+@Service
+public class CalendarioService {
+    // Días que se pueden pedir de una vez
+    private static final int MAX_DIAS = 31;
+
+    // Repositorio de clases
+    @Autowired
+    private ClaseRepository claseRepository;
+
+    private final LoadingCache<LocalDate, Dia> dias;
+    // idClase -> día cargado en el que está (para aplicar los cambios de plazas)
+    private final Map<Long, Dia> indice = new ConcurrentHashMap<>();
+
+    public CalendarioService(@Value("${gimnasio.calendario.max-dias:120}") long maxDias,
+                             @Value("${gimnasio.calendario.expiracion-min:10}") long expiracionMin) {
+        this.dias = Caffeine.newBuilder()
+                .maximumSize(maxDias)
+                .expireAfterWrite(Duration.ofMinutes(expiracionMin))
+                .<LocalDate, Dia>removalListener((fecha, dia, causa) -> {
+                    if (dia != null) {
+                        for (long idClase : dia.idsClase) {
+                            indice.remove(idClase, dia);
+                        }
+                    }
+                })
+                .build(new CacheLoader<LocalDate, Dia>() {
+                    @Override
+                    public Dia load(LocalDate fecha) {
+                        return cargarDias(List.of(fecha)).get(fecha);
+                    }
+
+                    @Override
+                    public Map<LocalDate, Dia> loadAll(Set<? extends LocalDate> fechas) {
+                        return cargarDias(fechas);
+                    }
+                });
+    }
+
+    // Clases de "numDias" días a partir de "desde" (hoy si no se indica) con su aforo y reservas confirmadas
+    public CalendarioDTO obtener(LocalDate desde, int numDias) {
+        if (numDias < 1 || numDias > MAX_DIAS) {
+            throw new BusinessRuleException("El número de días debe estar entre 1 y " + MAX_DIAS);
+        }
+        LocalDate inicio = desde != null ? desde : LocalDate.now();
+        List<LocalDate> fechas = inicio.datesUntil(inicio.plusDays(numDias)).toList();
+        Map<LocalDate, Dia> cargados = dias.getAll(fechas);
+
+        Map<Long, HorarioDTO> horarios = new HashMap<>();
+        List<DiaCalendarioDTO> calendario = new ArrayList<>(numDias);
+        for (LocalDate fecha : fechas) {
+            calendario.add(cargados.get(fecha).toDTO(horarios));
+        }
+        List<HorarioDTO> filas = horarios.values().stream()
+                .sorted(Comparator.comparing(HorarioDTO::getHoraInicio).thenComparing(HorarioDTO::getIdHorario))
+                .toList();
+        return new CalendarioDTO(inicio, numDias, filas, calendario);
+    }
+
+    // Suma (o resta) plazas ocupadas a la clase al confirmar, si su día está en memoria
+    public void ajustarPlazas(Long idClase, int cambio) {
+        AccionesTransaccion.alConfirmar(() -> {
+            Dia dia = indice.get(idClase);
+            if (dia != null) {
+                dia.ajustar(idClase, cambio);
+            }
+        });
+    }
+
+    // Descarta al confirmar el día de la clase (clase borrada o ya impartida)
+    public void invalidarClase(Long idClase) {
+        AccionesTransaccion.alConfirmar(() -> {
+            Dia dia = indice.get(idClase);
+            if (dia != null) {
+                dias.asMap().remove(dia.fecha, dia);
+            }
+        });
+    }
+
+    // Descarta al confirmar los días indicados (clases nuevas)
+    public void invalidarFechas(Collection<LocalDate> fechas) {
+        List<LocalDate> copia = List.copyOf(fechas);
+        AccionesTransaccion.alConfirmar(() -> dias.invalidateAll(copia));
+    }
+
+    // Descarta todos los días al confirmar (cambios masivos: series, borrado de horarios o entrenadores)
+    public void invalidarTodo() {
+        AccionesTransaccion.alConfirmar(dias::invalidateAll);
+    }
+
+    private Map<LocalDate, Dia> cargarDias(Collection<? extends LocalDate> fechas) {
+        Map<LocalDate, List<Object[]>> filas = new HashMap<>();
+        for (Object[] fila : claseRepository.findCalendarioByFechas(List.copyOf(fechas))) {
+            filas.computeIfAbsent((LocalDate) fila[0], fecha -> new ArrayList<>()).add(fila);
+        }
+        Map<LocalDate, Dia> cargados = new HashMap<>();
+        for (LocalDate fecha : fechas) {
+            Dia dia = new Dia(fecha, filas.getOrDefault(fecha, List.of()));
+            for (long idClase : dia.idsClase) {
+                indice.put(idClase, dia);
+            }
+            cargados.put(fecha, dia);
+        }
+        return cargados;
+    }
+
+    // Matriz de un día: la posición i de cada array es la i-ésima clase por hora de inicio
+    // Solo cambian las plazas ocupadas (con el bloqueo del día)
+    private static final class Dia {
+        private final LocalDate fecha;
+        private final long[] idsClase;
+        private final String[] nombres;
+        private final boolean[] privadas;
+        private final int[] aforos;       // -1 = sin aforo máximo
+        private final int[] ocupadas;
+        private final long[] idsHorario;
+        private final int[] inicios;      // minuto del día
+        private final int[] fines;
+
+        Dia(LocalDate fecha, List<Object[]> filas) {
+            int n = filas.size();
+            this.fecha = fecha;
+            idsClase = new long[n];
+            nombres = new String[n];
+            privadas = new boolean[n];
+            aforos = new int[n];
+            ocupadas = new int[n];
+            idsHorario = new long[n];
+            inicios = new int[n];
+            fines = new int[n];
+            for (int i = 0; i < n; i++) {
+                Object[] fila = filas.get(i);
+                idsClase[i] = (Long) fila[1];
+                nombres[i] = (String) fila[2];
+                privadas[i] = Boolean.TRUE.equals(fila[3]);
+                aforos[i] = fila[4] == null ? -1 : (Integer) fila[4];
+                ocupadas[i] = (Integer) fila[5];
+                idsHorario[i] = (Long) fila[6];
+                inicios[i] = ((LocalTime) fila[7]).toSecondOfDay() / 60;
+                fines[i] = ((LocalTime) fila[8]).toSecondOfDay() / 60;
+            }
+        }
+
+        synchronized void ajustar(long idClase, int cambio) {
+            for (int i = 0; i < idsClase.length; i++) {
+                if (idsClase[i] == idClase) {
+                    ocupadas[i] = Math.max(ocupadas[i] + cambio, 0);
+                    return;
+                }
+            }
+        }
+
+        // Añade a "horarios" los horarios del día que aún no estén
+        synchronized DiaCalendarioDTO toDTO(Map<Long, HorarioDTO> horarios) {
+            List<ClaseCalendarioDTO> clases = new ArrayList<>(idsClase.length);
+            for (int i = 0; i < idsClase.length; i++) {
+                int posicion = i;
+                horarios.computeIfAbsent(idsHorario[i], id -> new HorarioDTO(id,
+                        LocalTime.ofSecondOfDay(inicios[posicion] * 60L), LocalTime.ofSecondOfDay(fines[posicion] * 60L)));
+                clases.add(new ClaseCalendarioDTO(idsClase[i], nombres[i], privadas[i], idsHorario[i],
+                        aforos[i] < 0 ? null : aforos[i], ocupadas[i]));
+            }
+            return new DiaCalendarioDTO(fecha, clases);
+        }
+    }
+}
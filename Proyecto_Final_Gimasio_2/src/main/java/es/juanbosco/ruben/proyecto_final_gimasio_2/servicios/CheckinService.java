@@ -0,0 +1,415 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.CheckinDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ContextoReservaDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ReservaRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Reserva;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Control de acceso por el torno: el socio entra si tiene una reserva confirmada de hoy y la hora
+// actual está entre "antelacion-min" minutos antes del inicio de la clase y su fin.
+// Se comprueba contra la lista de reservas de hoy en memoria, sin consultar la BD:
+// idSocio -> long[] con [idReserva, idClase, inicio, fin] de cada reserva (horas en segundos del día).
+// La lista se carga al arrancar y antes de abrir (cron "precarga"), y ReservaService la mantiene al día
+// al crear, cancelar y borrar reservas. La lista es solo una caché: si el socio no tiene en ella ninguna
+// reserva abierta a esta hora se consultan en la BD sus reservas de hoy antes de rechazarlo (p. ej. una
+// reserva confirmada en otra instancia). Si la BD tampoco tiene ninguna, el rechazo se recuerda durante
+// "rechazo-cache-seg" segundos para que los intentos repetidos en el torno no vuelvan a consultarla.
+// Los cambios de clases quitan solo las reservas afectadas o recargan la lista en segundo plano; las
+// entradas siguen usando la lista anterior (y la BD para lo que no encuentren) mientras tanto.
+// La hora de entrada no se escribe durante la petición: se encola y cada "escritura-ms" se guardan
+// todas las pendientes en una transacción, con un UPDATE por cada segundo de entrada.
+// Métricas: gimnasio.checkin (etiqueta resultado) y gimnasio.checkin.pendientes
+@Service
+public class CheckinService implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(CheckinService.class);
+
+    // Posiciones de cada reserva en el array de un socio
+    private static final int CAMPOS = 4;
+    private static final int ID_RESERVA = 0;
+    private static final int ID_CLASE = 1;
+    private static final int INICIO = 2;
+    private static final int FIN = 3;
+    // Entradas guardadas como máximo por transacción
+    private static final int LOTE = 500;
+
+    // Repositorio de reservas
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    // Minutos antes del inicio de la clase desde los que se puede entrar
+    @Value("${gimnasio.checkin.antelacion-min:30}")
+    private long antelacionMin;
+    // Segundos durante los que se recuerda que un socio no tenía reserva en la BD
+    @Value("${gimnasio.checkin.rechazo-cache-seg:10}")
+    private long rechazoCacheSeg;
+
+    private final TransactionTemplate transactionTemplate;
+    private final Queue<Entrada> pendientes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numPendientes = new AtomicInteger();
+    private final Counter aceptados;
+    private final Counter repetidos;
+    private final Counter rechazados;
+    private final Counter consultasBd;
+    // Recarga de la lista en segundo plano (una en curso como máximo y otra pendiente)
+    private final ExecutorService recargas = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("checkin-recarga").factory());
+    private final AtomicBoolean recargaPendiente = new AtomicBoolean();
+    // Lista de accesos del día (null hasta la primera carga)
+    private volatile ListaAccesos lista;
+
+    public CheckinService(PlatformTransactionManager transactionManager, MeterRegistry registry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        Gauge.builder("gimnasio.checkin.pendientes", numPendientes, AtomicInteger::get)
+                .description("Entradas por el torno pendientes de guardar en la BD")
+                .register(registry);
+        this.aceptados = contador(registry, "aceptado");
+        this.repetidos = contador(registry, "repetido");
+        this.rechazados = contador(registry, "rechazado");
+        this.consultasBd = Counter.builder("gimnasio.checkin.consultas.bd")
+                .description("Entradas que no estaban en la lista de accesos y se han consultado en la BD")
+                .register(registry);
+    }
+
+    private static Counter contador(MeterRegistry registry, String resultado) {
+        return Counter.builder("gimnasio.checkin")
+                .description("Intentos de entrada por el torno")
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        precargar();
+    }
+
+    // Carga la lista de accesos de hoy antes de abrir
+    @Scheduled(cron = "${gimnasio.checkin.precarga.cron:0 0 5 * * *}")
+    public void precargar() {
+        ListaAccesos nueva = cargar(LocalDate.now());
+        sustituir(nueva);
+        logger.info("Lista de accesos del {} cargada: {} socios con reserva.", nueva.fecha, nueva.reservas.size());
+    }
+
+    // Registra la entrada del socio por el torno
+    // Si ya había entrado para la misma reserva se acepta de nuevo sin volver a guardarla
+    public CheckinDTO checkin(Long idSocio) {
+        LocalDateTime ahora = LocalDateTime.now();
+        ListaAccesos actual = listaDe(ahora.toLocalDate());
+        int segundo = ahora.toLocalTime().toSecondOfDay();
+
+        long[] reservas = actual.reservas.get(idSocio);
+        int posicion = buscar(reservas, segundo);
+        if (posicion < 0 && !actual.sinReservaReciente(idSocio)) {
+            // No está en la lista: puede que la reserva se haya confirmado en otra instancia
+            consultasBd.increment();
+            reservas = actual.anadirSocio(idSocio, reservaRepository.findAccesosBySocioAndFecha(
+                    idSocio, actual.fecha, EstadoReserva.CONFIRMADA));
+            posicion = buscar(reservas, segundo);
+            if (posicion < 0) {
+                actual.recordarSinReserva(idSocio, System.nanoTime() + TimeUnit.SECONDS.toNanos(rechazoCacheSeg));
+            }
+        }
+        if (posicion < 0) {
+            rechazados.increment();
+            throw new BusinessRuleException("El socio no tiene ninguna reserva confirmada para esta hora");
+        }
+
+        long idReserva = reservas[posicion + ID_RESERVA];
+        long idClase = reservas[posicion + ID_CLASE];
+        LocalDateTime anterior = actual.entradas.putIfAbsent(idReserva, ahora);
+        if (anterior == null) {
+            pendientes.add(new Entrada(idReserva, ahora));
+            numPendientes.incrementAndGet();
+            aceptados.increment();
+        } else {
+            repetidos.increment();
+        }
+        return new CheckinDTO(idSocio, idReserva, idClase, actual.nombresClase.get(idClase),
+                LocalTime.ofSecondOfDay(reservas[posicion + INICIO]), LocalTime.ofSecondOfDay(reservas[posicion + FIN]),
+                anterior != null ? anterior : ahora, anterior != null);
+    }
+
+    // Añade la reserva confirmada a la lista de hoy al confirmar (reserva nueva o plaza de la lista de espera)
+    public void anotarReserva(Long idReserva, ContextoReservaDTO contexto) {
+        LocalDate fecha = contexto.getFechaClase();
+        long idSocio = contexto.getIdSocio();
+        long[] datos = {idReserva, contexto.getIdClase(),
+                contexto.getHoraInicio().toSecondOfDay(), contexto.getHoraFin().toSecondOfDay()};
+        String nombre = contexto.getNombreClase();
+        AccionesTransaccion.alConfirmar(() -> {
+            ListaAccesos actual = lista;
+            if (actual != null && actual.fecha.equals(fecha)) {
+                actual.anadir(idSocio, datos, nombre);
+            }
+        });
+    }
+
+    // Quita la reserva de la lista de hoy al confirmar (reserva cancelada o borrada)
+    public void quitarReserva(Reserva reserva) {
+        long idSocio = reserva.getSocio().getIdSocio();
+        long idReserva = reserva.getIdReserva();
+        AccionesTransaccion.alConfirmar(() -> {
+            ListaAccesos actual = lista;
+            if (actual != null) {
+                actual.quitar(idSocio, idReserva);
+            }
+        });
+    }
+
+    // Quita de la lista de hoy al confirmar las reservas de una clase borrada
+    public void quitarClase(LocalDate fecha, Long idClase) {
+        long id = idClase;
+        AccionesTransaccion.alConfirmar(() -> {
+            ListaAccesos actual = lista;
+            if (actual != null && actual.fecha.equals(fecha)) {
+                actual.quitarClase(id);
+            }
+        });
+    }
+
+    // Recarga la lista en segundo plano al confirmar (cambios de horario o borrados en cascada de clases)
+    public void recargar() {
+        AccionesTransaccion.alConfirmar(this::programarRecarga);
+    }
+
+    // Guarda en la BD las entradas pendientes, en lotes de LOTE por transacción
+    // Si la BD falla se vuelven a encolar y se reintentan en la siguiente ejecución
+    @Scheduled(fixedDelayString = "${gimnasio.checkin.escritura-ms:1000}")
+    public void guardarEntradas() {
+        while (true) {
+            List<Entrada> lote = new ArrayList<>();
+            Entrada entrada;
+            while (lote.size() < LOTE && (entrada = pendientes.poll()) != null) {
+                lote.add(entrada);
+            }
+            if (lote.isEmpty()) {
+                return;
+            }
+            numPendientes.addAndGet(-lote.size());
+            Map<LocalDateTime, List<Long>> porSegundo = lote.stream().collect(Collectors.groupingBy(
+                    e -> e.hora().truncatedTo(ChronoUnit.SECONDS), TreeMap::new,
+                    Collectors.mapping(Entrada::idReserva, Collectors.toList())));
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        porSegundo.forEach((hora, idsReserva) -> reservaRepository.registrarCheckin(idsReserva, hora)));
+            } catch (DataAccessException e) {
+                logger.warn("No se han podido guardar {} entradas por el torno, se reintentará: {}", lote.size(), e.getMessage());
+                pendientes.addAll(lote);
+                numPendientes.addAndGet(lote.size());
+                return;
+            }
+            if (lote.size() < LOTE) {
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    void detener() {
+        recargas.shutdownNow();
+        guardarEntradas();
+    }
+
+    // Lista del día indicado; si todavía no está cargada (cambio de día sin precarga) se empieza con una
+    // vacía, que resuelve las entradas con la BD, y se carga la completa en segundo plano
+    private ListaAccesos listaDe(LocalDate fecha) {
+        ListaAccesos actual = lista;
+        if (actual != null && actual.fecha.equals(fecha)) {
+            return actual;
+        }
+        synchronized (this) {
+            actual = lista;
+            if (actual == null || !actual.fecha.equals(fecha)) {
+                actual = new ListaAccesos(fecha);
+                lista = actual;
+                programarRecarga();
+            }
+            return actual;
+        }
+    }
+
+    // Las peticiones que lleguen mientras se carga programan otra carga (pueden ser posteriores a la consulta)
+    private void programarRecarga() {
+        if (!recargaPendiente.compareAndSet(false, true)) {
+            return;
+        }
+        recargas.execute(() -> {
+            recargaPendiente.set(false);
+            try {
+                sustituir(cargar(LocalDate.now()));
+            } catch (DataAccessException e) {
+                logger.warn("No se ha podido recargar la lista de accesos: {}", e.getMessage());
+            }
+        });
+    }
+
+    // Pone la lista nueva conservando las entradas ya registradas en la anterior del mismo día
+    private synchronized void sustituir(ListaAccesos nueva) {
+        ListaAccesos anterior = lista;
+        if (anterior != null && anterior.fecha.equals(nueva.fecha)) {
+            anterior.entradas.forEach(nueva.entradas::putIfAbsent);
+        }
+        lista = nueva;
+    }
+
+    private ListaAccesos cargar(LocalDate fecha) {
+        ListaAccesos nueva = new ListaAccesos(fecha);
+        for (Object[] fila : reservaRepository.findAccesosByFecha(fecha, EstadoReserva.CONFIRMADA)) {
+            nueva.anadir(fila);
+        }
+        return nueva;
+    }
+
+    // Posición de la reserva en la que se puede entrar a esa hora (la que empieza antes) o -1
+    private int buscar(long[] reservas, int segundo) {
+        if (reservas == null) {
+            return -1;
+        }
+        long antelacion = antelacionMin * 60;
+        int encontrada = -1;
+        for (int i = 0; i < reservas.length; i += CAMPOS) {
+            boolean abierta = reservas[i + INICIO] - antelacion <= segundo && segundo < reservas[i + FIN];
+            if (abierta && (encontrada < 0 || reservas[i + INICIO] < reservas[encontrada + INICIO])) {
+                encontrada = i;
+            }
+        }
+        return encontrada;
+    }
+
+    private record Entrada(long idReserva, LocalDateTime hora) {
+    }
+
+    // Reservas confirmadas de un día por socio, nombres de las clases y entradas ya registradas
+    // Los arrays de cada socio no se modifican: cada cambio pone un array nuevo
+    private static final class ListaAccesos {
+        private final LocalDate fecha;
+        private final Map<Long, long[]> reservas = new ConcurrentHashMap<>();
+        private final Map<Long, String> nombresClase = new ConcurrentHashMap<>();
+        // idReserva -> hora de entrada
+        private final Map<Long, LocalDateTime> entradas = new ConcurrentHashMap<>();
+        // idSocio -> hasta cuándo (System.nanoTime) se recuerda que no tenía reserva en la BD
+        private final Map<Long, Long> sinReservaHasta = new ConcurrentHashMap<>();
+
+        ListaAccesos(LocalDate fecha) {
+            this.fecha = fecha;
+        }
+
+        // Fila de findAccesos...: [idReserva, idSocio, idClase, nombreClase, horaInicio, horaFin, fechaCheckin]
+        void anadir(Object[] fila) {
+            long[] datos = {(Long) fila[0], (Long) fila[2],
+                    ((LocalTime) fila[4]).toSecondOfDay(), ((LocalTime) fila[5]).toSecondOfDay()};
+            anadir((Long) fila[1], datos, (String) fila[3]);
+            if (fila[6] != null) {
+                entradas.putIfAbsent((Long) fila[0], (LocalDateTime) fila[6]);
+            }
+        }
+
+        void anadir(long idSocio, long[] datos, String nombreClase) {
+            nombresClase.putIfAbsent(datos[ID_CLASE], nombreClase);
+            sinReservaHasta.remove(idSocio);
+            reservas.compute(idSocio, (id, actuales) -> {
+                if (actuales == null) {
+                    return datos;
+                }
+                if (posicion(actuales, datos[ID_RESERVA]) >= 0) {
+                    return actuales;
+                }
+                long[] nuevas = Arrays.copyOf(actuales, actuales.length + CAMPOS);
+                System.arraycopy(datos, 0, nuevas, actuales.length, CAMPOS);
+                return nuevas;
+            });
+        }
+
+        void quitar(long idSocio, long idReserva) {
+            reservas.computeIfPresent(idSocio, (id, actuales) -> {
+                int i = posicion(actuales, idReserva);
+                if (i < 0) {
+                    return actuales;
+                }
+                if (actuales.length == CAMPOS) {
+                    return null;
+                }
+                long[] nuevas = new long[actuales.length - CAMPOS];
+                System.arraycopy(actuales, 0, nuevas, 0, i);
+                System.arraycopy(actuales, i + CAMPOS, nuevas, i, actuales.length - i - CAMPOS);
+                return nuevas;
+            });
+        }
+
+        // Quita las reservas de la clase de todos los socios
+        void quitarClase(long idClase) {
+            reservas.replaceAll((idSocio, actuales) -> {
+                long[] quedan = new long[actuales.length];
+                int n = 0;
+                for (int i = 0; i < actuales.length; i += CAMPOS) {
+                    if (actuales[i + ID_CLASE] != idClase) {
+                        System.arraycopy(actuales, i, quedan, n, CAMPOS);
+                        n += CAMPOS;
+                    }
+                }
+                return n == actuales.length ? actuales : Arrays.copyOf(quedan, n);
+            });
+            reservas.values().removeIf(actuales -> actuales.length == 0);
+        }
+
+        // Añade las reservas del socio leídas de la BD (sin quitar las anotadas entretanto)
+        long[] anadirSocio(long idSocio, List<Object[]> filas) {
+            filas.forEach(this::anadir);
+            return reservas.get(idSocio);
+        }
+
+        boolean sinReservaReciente(long idSocio) {
+            Long hasta = sinReservaHasta.get(idSocio);
+            return hasta != null && System.nanoTime() - hasta < 0;
+        }
+
+        void recordarSinReserva(long idSocio, long hasta) {
+            sinReservaHasta.put(idSocio, hasta);
+        }
+
+        private static int posicion(long[] reservas, long idReserva) {
+            for (int i = 0; i < reservas.length; i += CAMPOS) {
+                if (reservas[i + ID_RESERVA] == idReserva) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
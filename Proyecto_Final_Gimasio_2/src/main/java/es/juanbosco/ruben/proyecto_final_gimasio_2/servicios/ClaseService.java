@@ -2,7 +2,6 @@ package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,14 +13,17 @@ import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ResourceNotFoundE
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ClaseRepository;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.HorarioRepository;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.EntrenadorRepository;
-import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ReservaRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ListaEsperaRepository;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Clase;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Horario;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Entrenador;
-import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.Coleccion;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 // Servicio para la gestión de clases del gimnasio
@@ -38,11 +40,30 @@ public class ClaseService {
     // Repositorio de entrenadores
     @Autowired
     private EntrenadorRepository entrenadorRepository;
-    // Repositorio de reservas
+    // Asignación de plazas y asistentes por clase
     @Autowired
-    private ReservaRepository reservaRepository;
+    private AsignacionPlazasService asignacionPlazasService;
+    // Ranking de popularidad de las clases
+    @Autowired
+    private RankingClasesService rankingClasesService;
+    // Repositorio de la lista de espera
+    @Autowired
+    private ListaEsperaRepository listaEsperaRepository;
+    // Versiones de las colecciones para los ETag
+    @Autowired
+    private VersionesColeccionService versionesColeccionService;
+    // Agenda por día para detectar solapes de horario
+    @Autowired
+    private AgendaService agendaService;
+    // Calendario de clases en memoria
+    @Autowired
+    private CalendarioService calendarioService;
+    // Lista de accesos de hoy para el torno
+    @Autowired
+    private CheckinService checkinService;
 
     // Devuelve todas las clases sin paginación
+    @Transactional(readOnly = true)
     public List<ClaseDTO> findAll() {
         return claseRepository.findAll().stream()
                 .map(this::convertToDTO)
@@ -50,25 +71,39 @@ public class ClaseService {
     }
 
     // Devuelve todas las clases paginadas
+    @Transactional(readOnly = true)
     public Page<ClaseDTO> findAll(Pageable pageable) {
         return claseRepository.findAll(pageable)
                 .map(this::convertToDTO);
     }
 
     // Busca clases por filtros (nombre, fecha, tipo)
+    @Transactional(readOnly = true)
     public Page<ClaseDTO> findByFiltros(String nombre, LocalDate fechaClase, Boolean esPrivada, Pageable pageable) {
         return claseRepository.findByFiltros(nombre, fechaClase, esPrivada, pageable)
                 .map(this::convertToDTO);
     }
 
-    // Devuelve las clases más populares
-    public List<ClaseDTO> findClasesPopulares(int limit) {
-        return claseRepository.findClasesPopulares(PageRequest.of(0, limit)).stream()
+    // Devuelve las clases grupales más populares (ranking en memoria de RankingClasesService)
+    // dias = 0 cuenta todas las reservas no canceladas; 7, 30... solo las de los últimos días
+    @Transactional(readOnly = true)
+    public List<ClaseDTO> findClasesPopulares(int limit, int dias) {
+        List<Long> ids = rankingClasesService.findIdsPopulares(limit, dias);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // Una sola consulta por clave primaria y se respeta el orden del ranking
+        Map<Long, Clase> clases = claseRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Clase::getIdClase, Function.identity()));
+        return ids.stream()
+                .map(clases::get)
+                .filter(Objects::nonNull)
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
     // Busca clase por ID
+    @Transactional(readOnly = true)
     public ClaseDTO findById(Long id) {
         Clase clase = claseRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Clase no encontrada con id: " + id));
@@ -108,14 +143,27 @@ public class ClaseService {
         }
 
         Clase savedClase = claseRepository.save(clase);
+
+        // Validación: el entrenador no puede impartir dos clases a la vez
+        Long solape = agendaService.ocuparEntrenador(savedClase);
+        if (solape != null) {
+            throw new BusinessRuleException("El entrenador ya imparte otra clase que se solapa con este horario (clase con id: " + solape + ")");
+        }
+        calendarioService.invalidarFechas(List.of(savedClase.getFechaClase()));
+        versionesColeccionService.registrarCambio(Coleccion.CLASES);
         return convertToDTO(savedClase);
     }
 
     public void delete(Long id) {
-        if (!claseRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Clase no encontrada con id: " + id);
-        }
-        claseRepository.deleteById(id);
+        Clase clase = claseRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Clase no encontrada con id: " + id));
+        listaEsperaRepository.deleteByClaseId(id);
+        claseRepository.delete(clase);
+        asignacionPlazasService.olvidarClase(id);
+        agendaService.olvidarClase(clase.getFechaClase(), id);
+        checkinService.quitarClase(clase.getFechaClase(), id);
+        rankingClasesService.olvidarClase(id);
+        versionesColeccionService.registrarCambio(Coleccion.CLASES);
     }
 
     private ClaseDTO convertToDTO(Clase clase) {
@@ -141,11 +189,13 @@ public class ClaseService {
             dto.setNombreEntrenador(clase.getEntrenador().getNombre());
         }
 
-        // Contar reservas confirmadas
-        long reservasConfirmadas = reservaRepository.countByClaseIdAndEstado(
-                clase.getIdClase(), EstadoReserva.CONFIRMADA
-        );
-        dto.setReservasConfirmadas((int) reservasConfirmadas);
+        // El id de la serie se lee del proxy sin cargarla
+        if (clase.getSerie() != null) {
+            dto.setIdSerie(clase.getSerie().getIdSerie());
+        }
+
+        // Reservas confirmadas: se leen del contador de plazas, sin consultar la tabla de reservas
+        dto.setReservasConfirmadas(clase.getPlazasOcupadas());
 
         return dto;
     }
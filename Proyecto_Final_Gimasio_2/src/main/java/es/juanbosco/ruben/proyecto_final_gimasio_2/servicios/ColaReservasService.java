@@ -0,0 +1,256 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ReservaCreateDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ReservaDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SolicitudReservaDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ResourceNotFoundException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoSolicitud;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Cola de admisión de reservas para las aperturas de clases con mucha demanda
+// Las reservas de una misma clase se atienden por orden de llegada (FIFO), de una en una,
+// por un número pequeño de hilos, así la avalancha de reservas no acapara las conexiones a la BD.
+// Si la reserva se resuelve antes de "espera-max-ms" se devuelve el resultado; si no, un ticket
+// que el cliente puede consultar.
+// Métricas: gimnasio.reservas.cola.pendientes, gimnasio.reservas.cola.espera y gimnasio.reservas.cola.rechazadas
+@Service
+public class ColaReservasService {
+    private static final Logger logger = LoggerFactory.getLogger(ColaReservasService.class);
+
+    // Solicitudes que atiende un hilo seguidas de la misma clase antes de dejar paso a otras clases
+    private static final int LOTE = 32;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    // Hilos que procesan las colas
+    @Value("${gimnasio.reservas.cola.trabajadores:4}")
+    private int numTrabajadores;
+    // Solicitudes pendientes máximas entre todas las clases
+    @Value("${gimnasio.reservas.cola.capacidad:10000}")
+    private int capacidad;
+    // Tiempo que la petición espera el resultado antes de devolver el ticket
+    @Value("${gimnasio.reservas.cola.espera-max-ms:2000}")
+    private long esperaMaxMs;
+    // Tiempo que se conserva el resultado de una solicitud para poder consultarlo
+    @Value("${gimnasio.reservas.cola.retencion-ms:600000}")
+    private long retencionMs;
+
+    // idClase -> cola de solicitudes de la clase
+    private final Map<Long, ColaClase> colas = new ConcurrentHashMap<>();
+    // ticket -> solicitud
+    private final Map<String, Solicitud> solicitudes = new ConcurrentHashMap<>();
+    private final AtomicInteger pendientes = new AtomicInteger();
+    private final Timer espera;
+    private final Counter rechazadas;
+    private ExecutorService trabajadores;
+
+    public ColaReservasService(MeterRegistry registry) {
+        Gauge.builder("gimnasio.reservas.cola.pendientes", pendientes, AtomicInteger::get)
+                .description("Solicitudes de reserva esperando en la cola")
+                .register(registry);
+        this.espera = Timer.builder("gimnasio.reservas.cola.espera")
+                .description("Tiempo que una solicitud de reserva pasa en la cola")
+                .register(registry);
+        this.rechazadas = Counter.builder("gimnasio.reservas.cola.rechazadas")
+                .description("Solicitudes rechazadas por cola llena")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        AtomicInteger contador = new AtomicInteger();
+        trabajadores = Executors.newFixedThreadPool(numTrabajadores, r -> {
+            Thread hilo = new Thread(r, "reservas-cola-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PreDestroy
+    void detener() {
+        trabajadores.shutdown();
+    }
+
+    // Encola la reserva y espera el resultado un tiempo limitado.
+    // Si se resuelve a tiempo devuelve la reserva confirmada o lanza la misma excepción que ReservaService.create
+    public SolicitudReservaDTO reservar(ReservaCreateDTO createDTO) {
+        Solicitud solicitud = encolar(createDTO);
+        try {
+            solicitud.resultado.get(esperaMaxMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return toDTO(solicitud);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return toDTO(solicitud);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return toDTO(solicitud);
+    }
+
+    // Estado de una solicitud encolada
+    public SolicitudReservaDTO consultar(String ticket) {
+        Solicitud solicitud = solicitudes.get(ticket);
+        if (solicitud == null) {
+            throw new ResourceNotFoundException("Solicitud de reserva no encontrada: " + ticket);
+        }
+        return toDTO(solicitud);
+    }
+
+    // Olvida los resultados antiguos y las colas de clases sin solicitudes
+    @Scheduled(fixedDelay = 60000)
+    public void limpiar() {
+        long limite = System.currentTimeMillis() - retencionMs;
+        solicitudes.values().removeIf(s -> s.terminada > 0 && s.terminada < limite);
+        colas.keySet().forEach(idClase -> colas.computeIfPresent(idClase, (id, cola) -> cola.inactiva() ? null : cola));
+    }
+
+    private Solicitud encolar(ReservaCreateDTO createDTO) {
+        if (pendientes.incrementAndGet() > capacidad) {
+            pendientes.decrementAndGet();
+            rechazadas.increment();
+            throw new BusinessRuleException("Hay demasiadas reservas en cola. Inténtelo de nuevo en unos segundos");
+        }
+        Solicitud solicitud = new Solicitud(UUID.randomUUID().toString(), createDTO);
+        solicitudes.put(solicitud.ticket, solicitud);
+
+        Long idClase = createDTO.getIdClase();
+        boolean[] programar = new boolean[1];
+        ColaClase cola = colas.compute(idClase, (id, actual) -> {
+            ColaClase c = actual != null ? actual : new ColaClase();
+            programar[0] = c.agregar(solicitud);
+            return c;
+        });
+        if (programar[0]) {
+            trabajadores.execute(() -> procesar(cola));
+        }
+        return solicitud;
+    }
+
+    // Atiende solicitudes de una clase por orden; tras un lote (o un Error) cede el hilo a otras clases
+    // Mientras queden solicitudes la cola sigue "en proceso", así que siempre se vuelve a programar
+    private void procesar(ColaClase cola) {
+        boolean vacia = false;
+        try {
+            for (int i = 0; i < LOTE; i++) {
+                Solicitud solicitud = cola.siguiente();
+                if (solicitud == null) {
+                    vacia = true;
+                    return;
+                }
+                if (!atender(solicitud)) {
+                    return;
+                }
+            }
+        } finally {
+            if (!vacia) {
+                trabajadores.execute(() -> procesar(cola));
+            }
+        }
+    }
+
+    // Resuelve la solicitud; devuelve false si ha fallado con un Error
+    // El Error no se relanza: solo acabaría con el hilo del pool, y la solicitud ya lo recibe como resultado
+    private boolean atender(Solicitud solicitud) {
+        pendientes.decrementAndGet();
+        espera.record(System.nanoTime() - solicitud.encolada, TimeUnit.NANOSECONDS);
+        try {
+            solicitud.resultado.complete(reservaService.create(solicitud.createDTO));
+            return true;
+        } catch (RuntimeException e) {
+            solicitud.resultado.completeExceptionally(e);
+            return true;
+        } catch (Error e) {
+            solicitud.resultado.completeExceptionally(e);
+            logger.error("Error procesando la solicitud de reserva {}", solicitud.ticket, e);
+            return false;
+        } finally {
+            solicitud.terminada = System.currentTimeMillis();
+        }
+    }
+
+    private static SolicitudReservaDTO toDTO(Solicitud solicitud) {
+        CompletableFuture<ReservaDTO> resultado = solicitud.resultado;
+        if (!resultado.isDone()) {
+            return new SolicitudReservaDTO(solicitud.ticket, EstadoSolicitud.EN_COLA, null, null);
+        }
+        try {
+            return new SolicitudReservaDTO(solicitud.ticket, EstadoSolicitud.CONFIRMADA, resultado.join(), null);
+        } catch (RuntimeException e) {
+            Throwable causa = e.getCause() != null ? e.getCause() : e;
+            return new SolicitudReservaDTO(solicitud.ticket, EstadoSolicitud.RECHAZADA, null, causa.getMessage());
+        }
+    }
+
+    // Solicitud de reserva encolada
+    private static class Solicitud {
+        private final String ticket;
+        private final ReservaCreateDTO createDTO;
+        private final long encolada = System.nanoTime();
+        private final CompletableFuture<ReservaDTO> resultado = new CompletableFuture<>();
+        private volatile long terminada;
+
+        Solicitud(String ticket, ReservaCreateDTO createDTO) {
+            this.ticket = ticket;
+            this.createDTO = createDTO;
+        }
+    }
+
+    // Cola FIFO de una clase; como mucho un hilo la procesa a la vez
+    private static class ColaClase {
+        private final Queue<Solicitud> solicitudes = new ArrayDeque<>();
+        private boolean enProceso;
+
+        // Agrega la solicitud; devuelve true si hay que programar un hilo para procesar la cola
+        synchronized boolean agregar(Solicitud solicitud) {
+            solicitudes.add(solicitud);
+            if (enProceso) {
+                return false;
+            }
+            enProceso = true;
+            return true;
+        }
+
+        // Siguiente solicitud; si no quedan, la cola deja de estar en proceso
+        synchronized Solicitud siguiente() {
+            Solicitud solicitud = solicitudes.poll();
+            if (solicitud == null) {
+                enProceso = false;
+            }
+            return solicitud;
+        }
+
+        synchronized boolean inactiva() {
+            return !enProceso && solicitudes.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.CompletadoReservasDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ClaseRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ReservaRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.Coleccion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Servicio que marca como COMPLETADA las reservas confirmadas de las clases ya terminadas
+// Trabaja por lotes de clases ordenados por hora de fin: cada lote es una transacción corta
+// con dos UPDATE (reservas y contador de plazas), sin cargar reservas en memoria.
+// Métricas: gimnasio.reservas.completadas, gimnasio.reservas.completado.ejecucion
+// y gimnasio.reservas.completado.retraso (segundos desde el fin de la clase pendiente más antigua)
+@Service
+public class CompletadoReservasService {
+    private static final Logger logger = LoggerFactory.getLogger(CompletadoReservasService.class);
+
+    // Repositorio de clases
+    @Autowired
+    private ClaseRepository claseRepository;
+    // Repositorio de reservas
+    @Autowired
+    private ReservaRepository reservaRepository;
+    // Asignación de plazas y asistentes por clase
+    @Autowired
+    private AsignacionPlazasService asignacionPlazasService;
+    // Versiones de las colecciones para los ETag (las plazas libres forman parte de /api/clases)
+    @Autowired
+    private VersionesColeccionService versionesColeccionService;
+
+    // Número de clases procesadas en cada lote
+    @Value("${gimnasio.reservas.completado.tamano-lote:200}")
+    private int tamanoLote;
+
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean enCurso = new AtomicBoolean(false);
+    private final AtomicLong retrasoSegundos = new AtomicLong();
+    private final Counter reservasCompletadas;
+    private final Timer ejecucion;
+
+    public CompletadoReservasService(PlatformTransactionManager transactionManager, MeterRegistry registry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reservasCompletadas = Counter.builder("gimnasio.reservas.completadas")
+                .description("Reservas marcadas como COMPLETADA por el proceso automático")
+                .register(registry);
+        this.ejecucion = Timer.builder("gimnasio.reservas.completado.ejecucion")
+                .description("Duración de cada ejecución del completado de reservas")
+                .register(registry);
+        Gauge.builder("gimnasio.reservas.completado.retraso", retrasoSegundos, AtomicLong::get)
+                .description("Segundos desde el fin de la clase pendiente de completar más antigua")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    // Ejecución periódica (por defecto cada 5 minutos)
+    @Scheduled(cron = "${gimnasio.reservas.completado.cron:0 */5 * * * *}")
+    public void completarPeriodicamente() {
+        try {
+            completarReservasTerminadas();
+        } catch (BusinessRuleException e) {
+            logger.info("Completado de reservas omitido: {}", e.getMessage());
+        }
+    }
+
+    // Completa las reservas de todas las clases terminadas, lote a lote
+    public CompletadoReservasDTO completarReservasTerminadas() {
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new BusinessRuleException("Ya hay un completado de reservas en curso");
+        }
+        try {
+            return ejecucion.record(this::procesarLotes);
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    private CompletadoReservasDTO procesarLotes() {
+        LocalDateTime ahora = LocalDateTime.now();
+        int clases = 0;
+        int reservas = 0;
+        int lotes = 0;
+
+        List<Long> lote = siguienteLote(ahora);
+        actualizarRetraso(lote, ahora);
+
+        while (!lote.isEmpty()) {
+            List<Long> idsClase = lote;
+            Integer completadas = transactionTemplate.execute(status -> {
+                int n = reservaRepository.updateEstadoByClaseIds(
+                        idsClase, EstadoReserva.CONFIRMADA, EstadoReserva.COMPLETADA);
+                claseRepository.vaciarPlazas(idsClase);
+                idsClase.forEach(asignacionPlazasService::olvidarClase);
+                versionesColeccionService.registrarCambio(Coleccion.CLASES);
+                return n;
+            });
+            clases += idsClase.size();
+            reservas += completadas == null ? 0 : completadas;
+            lotes++;
+            reservasCompletadas.increment(completadas == null ? 0 : completadas);
+
+            lote = idsClase.size() < tamanoLote ? List.of() : siguienteLote(ahora);
+        }
+
+        retrasoSegundos.set(0);
+        if (reservas > 0) {
+            logger.info("Completadas {} reservas de {} clases en {} lotes.", reservas, clases, lotes);
+        }
+        return new CompletadoReservasDTO(clases, reservas, lotes);
+    }
+
+    private List<Long> siguienteLote(LocalDateTime ahora) {
+        return claseRepository.findIdsClasesTerminadasConReservas(
+                ahora.toLocalDate(), ahora.toLocalTime(), EstadoReserva.CONFIRMADA, PageRequest.of(0, tamanoLote));
+    }
+
+    // El primer id del primer lote es la clase pendiente que terminó hace más tiempo
+    private void actualizarRetraso(List<Long> lote, LocalDateTime ahora) {
+        if (lote.isEmpty()) {
+            retrasoSegundos.set(0);
+            return;
+        }
+        claseRepository.findById(lote.get(0)).ifPresent(clase -> {
+            LocalDateTime fin = LocalDateTime.of(clase.getFechaClase(), clase.getHorario().getHoraFin());
+            retrasoSegundos.set(Duration.between(fin, ahora).getSeconds());
+        });
+    }
+}
@@ -0,0 +1,46 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+// Invalidación de las cachés de datos de referencia (planes, horarios y entrenadores)
+// Las búsquedas cacheadas están en los repositorios (PlanRepository.existsByTipo,
+// HorarioRepository.findReferenciaById y EntrenadorRepository.findReferenciaById) y guardan datos
+// inmutables (existe o no, HorarioReferenciaDTO, EntrenadorReferenciaDTO), nunca entidades gestionadas.
+// Al modificar uno de estos datos se borra la entrada al momento y otra vez al confirmar la
+// transacción, así una lectura concurrente no deja en caché el valor anterior.
+// Métricas (Actuator): cache.gets con las etiquetas cache y result (hit/miss)
+@Service
+public class DatosReferenciaService {
+    public static final String PLANES = "planes";
+    public static final String HORARIOS = "horarios";
+    public static final String ENTRENADORES = "entrenadores";
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    public void invalidarPlanes() {
+        invalidar(PLANES, null);
+    }
+
+    public void invalidarHorario(Long idHorario) {
+        invalidar(HORARIOS, idHorario);
+    }
+
+    public void invalidarEntrenador(Long idEntrenador) {
+        invalidar(ENTRENADORES, idEntrenador);
+    }
+
+    // clave null = vaciar toda la caché
+    private void invalidar(String nombre, Object clave) {
+        Cache cache = cacheManager.getCache(nombre);
+        if (cache == null) {
+            return;
+        }
+        Runnable borrar = clave == null ? cache::clear : () -> cache.evict(clave);
+        borrar.run();
+        AccionesTransaccion.alConfirmar(borrar);
+    }
+}
@@ -0,0 +1,260 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.DisponibilidadClaseDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ServicioSaturadoException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ClaseRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.config.CargaTrabajo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Aviso en directo de las plazas libres de las clases (Server-Sent Events)
+// Las pantallas y la app abren una conexión a /api/clases/disponibilidad/stream en lugar de consultar
+// /api/clases cada pocos segundos. AsignacionPlazasService anota las clases cuyas plazas cambian (al
+// confirmar la transacción) y cada "intervalo-ms" se publican todas juntas: una consulta por ronda,
+// sea cual sea el número de pantallas conectadas.
+// Cada pantalla tiene su propio buffer con el último estado de cada clase pendiente de enviar: varios
+// cambios seguidos de una clase se agrupan en un solo evento. Si el buffer supera "buffer" clases (la
+// pantalla no lee) se cierra la conexión; al reconectar recibe de nuevo el estado inicial.
+// Los envíos se hacen en hilos virtuales, así una pantalla lenta no retrasa a las demás.
+// Métricas: gimnasio.clases.disponibilidad.suscriptores y gimnasio.clases.disponibilidad.descartados
+@Service
+public class DisponibilidadClasesService {
+    private static final Logger logger = LoggerFactory.getLogger(DisponibilidadClasesService.class);
+
+    // Repositorio de clases
+    @Autowired
+    private ClaseRepository claseRepository;
+
+    // Clases pendientes de enviar por pantalla antes de cerrar su conexión
+    @Value("${gimnasio.clases.disponibilidad.buffer:500}")
+    private int tamanoBuffer;
+    // Duración máxima de una conexión (el navegador reconecta solo)
+    @Value("${gimnasio.clases.disponibilidad.timeout-ms:1800000}")
+    private long timeoutMs;
+    // Conexiones abiertas como máximo
+    @Value("${gimnasio.clases.disponibilidad.max-suscriptores:5000}")
+    private int maxSuscriptores;
+
+    // Clases con cambios desde la última publicación
+    private final Set<Long> cambiadas = ConcurrentHashMap.newKeySet();
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final ExecutorService envios = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("disponibilidad-sse-", 0).factory());
+    private final Counter descartados;
+
+    public DisponibilidadClasesService(MeterRegistry registry) {
+        Gauge.builder("gimnasio.clases.disponibilidad.suscriptores", suscriptores, Set::size)
+                .description("Conexiones abiertas al stream de disponibilidad de clases")
+                .register(registry);
+        this.descartados = Counter.builder("gimnasio.clases.disponibilidad.descartados")
+                .description("Conexiones cerradas por no leer los eventos a tiempo")
+                .register(registry);
+    }
+
+    @PreDestroy
+    void detener() {
+        suscriptores.forEach(suscriptor -> suscriptor.emitter.complete());
+        envios.shutdown();
+    }
+
+    // Anota que han cambiado las plazas de la clase; se publica si la transacción se confirma
+    public void notificarCambio(Long idClase) {
+        AccionesTransaccion.alConfirmar(() -> cambiadas.add(idClase));
+    }
+
+    // Abre una conexión que recibe las plazas de las clases de la fecha indicada (o de todas si es null)
+    // Empieza con el estado de las clases de ese día (de hoy si no se indica fecha)
+    public SseEmitter suscribir(LocalDate fecha) {
+        if (suscriptores.size() >= maxSuscriptores) {
+            throw new ServicioSaturadoException("Hay demasiadas pantallas conectadas. Inténtelo de nuevo en unos minutos");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Suscriptor suscriptor = new Suscriptor(emitter, fecha);
+        emitter.onCompletion(suscriptor::cerrar);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> suscriptor.cerrar());
+        // Primero se registra y después se carga el estado inicial: un cambio que llegue entretanto no se pierde
+        // y el estado inicial no pisa un cambio más reciente
+        suscriptores.add(suscriptor);
+        for (Object[] fila : claseRepository.findDisponibilidadByFecha(fecha != null ? fecha : LocalDate.now())) {
+            suscriptor.encolar(toDTO(fila), false);
+        }
+        return emitter;
+    }
+
+    // Publica el estado actual de las clases que han cambiado a las pantallas interesadas
+    @Scheduled(fixedDelayString = "${gimnasio.clases.disponibilidad.intervalo-ms:500}")
+    public void publicar() {
+        if (cambiadas.isEmpty()) {
+            return;
+        }
+        List<Long> idsClase = new ArrayList<>(cambiadas);
+        cambiadas.removeAll(idsClase);
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+        List<Object[]> filas;
+        CargaTrabajo.establecer(CargaTrabajo.LECTURA);
+        try {
+            filas = claseRepository.findDisponibilidadByIds(idsClase);
+        } finally {
+            CargaTrabajo.limpiar();
+        }
+        for (Object[] fila : filas) {
+            DisponibilidadClaseDTO dto = toDTO(fila);
+            for (Suscriptor suscriptor : suscriptores) {
+                if (suscriptor.interesa(dto)) {
+                    suscriptor.encolar(dto, true);
+                }
+            }
+        }
+    }
+
+    // Comentario periódico para que los proxies no corten las conexiones sin tráfico
+    @Scheduled(fixedDelayString = "${gimnasio.clases.disponibilidad.latido-ms:25000}")
+    public void latido() {
+        suscriptores.forEach(Suscriptor::latir);
+    }
+
+    private static DisponibilidadClaseDTO toDTO(Object[] fila) {
+        Integer aforoMaximo = (Integer) fila[2];
+        Integer plazasOcupadas = (Integer) fila[3];
+        Integer plazasLibres = aforoMaximo == null ? null : Math.max(aforoMaximo - plazasOcupadas, 0);
+        return new DisponibilidadClaseDTO((Long) fila[0], (LocalDate) fila[1], aforoMaximo, plazasOcupadas, plazasLibres);
+    }
+
+    // Una conexión abierta con su buffer de eventos pendientes
+    // Solo hay un envío en curso por conexión (enviando); el resto de hilos solo deja eventos en el buffer
+    private class Suscriptor {
+        private final SseEmitter emitter;
+        private final LocalDate fecha;
+        // idClase -> último estado de la clase pendiente de enviar
+        private final Map<Long, DisponibilidadClaseDTO> pendientes = new LinkedHashMap<>();
+        private boolean latido;
+        private boolean enviando;
+        private boolean cerrado;
+
+        Suscriptor(SseEmitter emitter, LocalDate fecha) {
+            this.emitter = emitter;
+            this.fecha = fecha;
+        }
+
+        boolean interesa(DisponibilidadClaseDTO dto) {
+            return fecha == null || fecha.equals(dto.getFechaClase());
+        }
+
+        // reemplazar = false: no pisa un estado pendiente de la misma clase (estado inicial)
+        void encolar(DisponibilidadClaseDTO dto, boolean reemplazar) {
+            boolean desbordado;
+            synchronized (this) {
+                if (cerrado) {
+                    return;
+                }
+                if (reemplazar) {
+                    pendientes.put(dto.getIdClase(), dto);
+                } else {
+                    pendientes.putIfAbsent(dto.getIdClase(), dto);
+                }
+                desbordado = pendientes.size() > tamanoBuffer;
+                if (!desbordado && !iniciarEnvio()) {
+                    return;
+                }
+            }
+            if (desbordado) {
+                descartar();
+            } else {
+                envios.execute(this::enviar);
+            }
+        }
+
+        void latir() {
+            synchronized (this) {
+                if (cerrado) {
+                    return;
+                }
+                latido = true;
+                if (!iniciarEnvio()) {
+                    return;
+                }
+            }
+            envios.execute(this::enviar);
+        }
+
+        // Devuelve true si este hilo debe lanzar el envío (no había uno en curso)
+        private boolean iniciarEnvio() {
+            if (enviando) {
+                return false;
+            }
+            enviando = true;
+            return true;
+        }
+
+        private void enviar() {
+            while (true) {
+                List<DisponibilidadClaseDTO> lote;
+                boolean conLatido;
+                synchronized (this) {
+                    if (cerrado || (pendientes.isEmpty() && !latido)) {
+                        enviando = false;
+                        return;
+                    }
+                    lote = new ArrayList<>(pendientes.values());
+                    pendientes.clear();
+                    conLatido = latido;
+                    latido = false;
+                }
+                try {
+                    if (conLatido) {
+                        emitter.send(SseEmitter.event().comment("latido"));
+                    }
+                    for (DisponibilidadClaseDTO dto : lote) {
+                        emitter.send(SseEmitter.event()
+                                .name("disponibilidad")
+                                .data(dto, MediaType.APPLICATION_JSON));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // Conexión cerrada por el cliente: el contenedor completa el emitter
+                    logger.debug("Conexión de disponibilidad cerrada: {}", e.getMessage());
+                    cerrar();
+                    return;
+                }
+            }
+        }
+
+        private void descartar() {
+            descartados.increment();
+            logger.warn("Conexión de disponibilidad cerrada por no leer los eventos ({} clases pendientes)", tamanoBuffer);
+            cerrar();
+            emitter.complete();
+        }
+
+        void cerrar() {
+            synchronized (this) {
+                cerrado = true;
+                pendientes.clear();
+            }
+            suscriptores.remove(this);
+        }
+    }
+}
@@ -7,18 +7,30 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.EntrenadorCreateDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.EntrenadorDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.EntrenadorReferenciaDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.EntrenadorUpdateDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.HuecoDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ResourceNotFoundException;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.EntrenadorRepository;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.SocioRepository;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Entrenador;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.Coleccion;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
 
 // Servicio para la gestión de entrenadores
 // Incluye validaciones de negocio y conversión a DTO
 @Service
 @Transactional
 public class EntrenadorService {
+    // Límites de la búsqueda de huecos libres
+    private static final int SEMANAS_HUECOS = 4;
+    private static final int MAX_DIAS_HUECOS = 62;
+    private static final int MIN_DURACION_HUECO = 15;
+    private static final int MAX_DURACION_HUECO = 180;
 
     // Repositorio de entrenadores
     @Autowired
@@ -28,23 +40,74 @@ public class EntrenadorService {
     @Autowired
     private SocioRepository socioRepository;
 
+    // Invalidación de las cachés de datos de referencia
+    @Autowired
+    private DatosReferenciaService datosReferenciaService;
+    // Versiones de las colecciones para los ETag
+    @Autowired
+    private VersionesColeccionService versionesColeccionService;
+    // Agenda por día para detectar solapes de horario
+    @Autowired
+    private AgendaService agendaService;
+    // Calendario de clases en memoria
+    @Autowired
+    private CalendarioService calendarioService;
+    // Lista de accesos de hoy para el torno
+    @Autowired
+    private CheckinService checkinService;
+
     // Devuelve todos los entrenadores paginados
+    @Transactional(readOnly = true)
     public Page<EntrenadorDTO> findAll(Pageable pageable) {
         return entrenadorRepository.findAll(pageable)
                 .map(this::convertToDTO);
     }
 
     // Busca entrenadores por especialidad
+    @Transactional(readOnly = true)
     public Page<EntrenadorDTO> findByEspecialidad(String especialidad, Pageable pageable) {
         return entrenadorRepository.findByEspecialidad(especialidad, pageable)
                 .map(this::convertToDTO);
     }
 
     // Busca entrenador por ID
+    @Transactional(readOnly = true)
     public EntrenadorDTO findById(Long id) {
-        Entrenador entrenador = entrenadorRepository.findById(id)
+        EntrenadorReferenciaDTO entrenador = entrenadorRepository.findReferenciaById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Entrenador no encontrado con id: " + id));
-        return convertToDTO(entrenador);
+        EntrenadorDTO dto = new EntrenadorDTO();
+        dto.setIdSocio(entrenador.getIdSocio());
+        dto.setNombre(entrenador.getNombre());
+        dto.setApellidos(entrenador.getApellidos());
+        dto.setEmail(entrenador.getEmail());
+        dto.setTelefono(entrenador.getTelefono());
+        dto.setFechaAlta(entrenador.getFechaAlta());
+        dto.setEsActivo(entrenador.getEsActivo());
+        dto.setEspecialidad(entrenador.getEspecialidad());
+        return dto;
+    }
+
+    // Huecos libres del entrenador para programar una clase privada
+    // Por defecto busca las próximas 4 semanas; no se buscan huecos en días pasados
+    @Transactional(readOnly = true)
+    public List<HuecoDTO> findHuecos(Long id, LocalDate desde, LocalDate hasta, int duracion) {
+        if (!entrenadorRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Entrenador no encontrado con id: " + id);
+        }
+        if (duracion < MIN_DURACION_HUECO || duracion > MAX_DURACION_HUECO) {
+            throw new BusinessRuleException("La duración debe estar entre " + MIN_DURACION_HUECO + " y "
+                    + MAX_DURACION_HUECO + " minutos");
+        }
+        LocalDate hoy = LocalDate.now();
+        LocalDate inicio = desde == null || desde.isBefore(hoy) ? hoy : desde;
+        LocalDate fin = hasta == null ? inicio.plusWeeks(SEMANAS_HUECOS).minusDays(1) : hasta;
+        if (fin.isBefore(inicio)) {
+            throw new BusinessRuleException("La fecha hasta no puede ser anterior a la fecha desde");
+        }
+        if (ChronoUnit.DAYS.between(inicio, fin) >= MAX_DIAS_HUECOS) {
+            throw new BusinessRuleException("El rango de búsqueda no puede superar " + MAX_DIAS_HUECOS + " días");
+        }
+        return agendaService.huecosEntrenador(id, inicio, fin, duracion);
     }
 
     // Crea un nuevo entrenador con validación de email único
@@ -63,6 +126,7 @@ public class EntrenadorService {
         entrenador.setPlan(null); // Los entrenadores no tienen plan
 
         Entrenador savedEntrenador = entrenadorRepository.save(entrenador);
+        versionesColeccionService.registrarCambio(Coleccion.ENTRENADORES);
         return convertToDTO(savedEntrenador);
     }
 
@@ -71,6 +135,12 @@ public class EntrenadorService {
             throw new ResourceNotFoundException("Entrenador no encontrado con id: " + id);
         }
         entrenadorRepository.deleteById(id);
+        datosReferenciaService.invalidarEntrenador(id);
+        // Se borran en cascada sus clases (y sus reservas)
+        agendaService.invalidarTodo();
+        calendarioService.invalidarTodo();
+        checkinService.recargar();
+        versionesColeccionService.registrarCambio(Coleccion.ENTRENADORES, Coleccion.CLASES);
     }
 
     public EntrenadorDTO update(Long id, EntrenadorUpdateDTO dto) {
@@ -85,6 +155,8 @@ public class EntrenadorService {
         entrenador.setEspecialidad(dto.getEspecialidad());
         entrenador.setPlan(null); // tipoPlan siempre null
         Entrenador actualizado = entrenadorRepository.save(entrenador);
+        datosReferenciaService.invalidarEntrenador(id);
+        versionesColeccionService.registrarCambio(Coleccion.ENTRENADORES, Coleccion.CLASES);
         return convertToDTO(actualizado);
     }
 
@@ -93,6 +165,8 @@ public class EntrenadorService {
                 .orElseThrow(() -> new ResourceNotFoundException("Entrenador no encontrado con id: " + id));
         entrenador.setEsActivo(false);
         Entrenador actualizado = entrenadorRepository.save(entrenador);
+        datosReferenciaService.invalidarEntrenador(id);
+        versionesColeccionService.registrarCambio(Coleccion.ENTRENADORES, Coleccion.CLASES);
         return convertToDTO(actualizado);
     }
 
@@ -0,0 +1,123 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.config.CargaTrabajo;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.FormatoExportacion;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Exportación masiva en streaming (NDJSON o CSV)
+// Las filas se leen con un Stream de JPA (cursor de la BD con fetch size) y se escriben en la
+// respuesta a medida que llegan; cada "limpiar-cada" filas se vacía el contexto de persistencia,
+// así la memoria usada no depende del tamaño de la tabla.
+// Se ejecuta en el hilo asíncrono de la respuesta, dentro de una transacción de solo lectura
+// sobre el pool de lectura (o la réplica).
+@Service
+public class ExportacionService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Filas escritas entre dos limpiezas del contexto de persistencia
+    @Value("${gimnasio.exportacion.limpiar-cada:500}")
+    private int limpiarCada;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public ExportacionService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    // Columna del CSV: cabecera y valor a partir del DTO
+    public record Columna<D>(String nombre, Function<D, Object> valor) {
+    }
+
+    // Cuerpo de la respuesta que recorre la consulta y escribe cada fila convertida a DTO
+    public <E, D> StreamingResponseBody exportar(FormatoExportacion formato, Supplier<Stream<E>> consulta,
+                                                 Function<E, D> convertir, List<Columna<D>> columnas) {
+        return salida -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+            CargaTrabajo.establecer(CargaTrabajo.LECTURA);
+            try {
+                if (formato == FormatoExportacion.CSV) {
+                    escribirCsv(writer, columnas.stream().map(Columna::nombre).toArray());
+                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<E> filas = consulta.get()) {
+                        escribirFilas(writer, formato, filas.iterator(), convertir, columnas);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.flush();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                CargaTrabajo.limpiar();
+            }
+        };
+    }
+
+    private <E, D> void escribirFilas(Writer writer, FormatoExportacion formato, Iterator<E> filas,
+                                      Function<E, D> convertir, List<Columna<D>> columnas) throws IOException {
+        int pendientes = 0;
+        while (filas.hasNext()) {
+            D dto = convertir.apply(filas.next());
+            if (formato == FormatoExportacion.CSV) {
+                escribirCsv(writer, columnas.stream().map(c -> c.valor().apply(dto)).toArray());
+            } else {
+                writer.write(objectMapper.writeValueAsString(dto));
+                writer.write('\n');
+            }
+            if (++pendientes == limpiarCada) {
+                writer.flush();
+                entityManager.clear();
+                pendientes = 0;
+            }
+        }
+    }
+
+    private static void escribirCsv(Writer writer, Object[] valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escaparCsv(valores[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    // Entre comillas si contiene separador, comillas o saltos de línea (RFC 4180)
+    private static String escaparCsv(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        String texto = valor.toString();
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            return texto;
+        }
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+}
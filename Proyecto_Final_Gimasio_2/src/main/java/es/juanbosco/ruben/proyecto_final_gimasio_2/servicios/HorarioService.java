@@ -7,10 +7,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.HorarioCreateDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.HorarioDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.HorarioReferenciaDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ResourceNotFoundException;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.HorarioRepository;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Horario;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.Coleccion;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -23,8 +25,24 @@ public class HorarioService {
     // Repositorio de horarios
     @Autowired
     private HorarioRepository horarioRepository;
+    // Invalidación de las cachés de datos de referencia
+    @Autowired
+    private DatosReferenciaService datosReferenciaService;
+    // Versiones de las colecciones para los ETag
+    @Autowired
+    private VersionesColeccionService versionesColeccionService;
+    // Agenda por día para detectar solapes de horario
+    @Autowired
+    private AgendaService agendaService;
+    // Calendario de clases en memoria
+    @Autowired
+    private CalendarioService calendarioService;
+    // Lista de accesos de hoy para el torno
+    @Autowired
+    private CheckinService checkinService;
 
     // Devuelve todos los horarios sin paginación
+    @Transactional(readOnly = true)
     public List<HorarioDTO> findAll() {
         return horarioRepository.findAll().stream()
                 .map(this::convertToDTO)
@@ -32,16 +50,18 @@ public class HorarioService {
     }
 
     // Devuelve todos los horarios paginados
+    @Transactional(readOnly = true)
     public Page<HorarioDTO> findAll(Pageable pageable) {
         return horarioRepository.findAll(pageable)
                 .map(this::convertToDTO);
     }
 
     // Busca horario por ID
+    @Transactional(readOnly = true)
     public HorarioDTO findById(Long id) {
-        Horario horario = horarioRepository.findById(id)
+        HorarioReferenciaDTO horario = horarioRepository.findReferenciaById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Horario no encontrado con id: " + id));
-        return convertToDTO(horario);
+        return new HorarioDTO(horario.getIdHorario(), horario.getHoraInicio(), horario.getHoraFin());
     }
 
     // Crea un nuevo horario con validación de horas
@@ -55,6 +75,7 @@ public class HorarioService {
         horario.setHoraInicio(createDTO.getHoraInicio());
         horario.setHoraFin(createDTO.getHoraFin());
         Horario savedHorario = horarioRepository.save(horario);
+        versionesColeccionService.registrarCambio(Coleccion.HORARIOS);
         return convertToDTO(savedHorario);
     }
 
@@ -63,6 +84,12 @@ public class HorarioService {
             throw new ResourceNotFoundException("Horario no encontrado con id: " + id);
         }
         horarioRepository.deleteById(id);
+        datosReferenciaService.invalidarHorario(id);
+        // Se borran en cascada sus clases (y sus reservas)
+        agendaService.invalidarTodo();
+        calendarioService.invalidarTodo();
+        checkinService.recargar();
+        versionesColeccionService.registrarCambio(Coleccion.HORARIOS, Coleccion.CLASES);
     }
 
     private HorarioDTO convertToDTO(Horario horario) {
@@ -0,0 +1,277 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ErrorImportacionDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ImportacionSociosDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SocioCreateDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.PlanRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.SocioRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Plan;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Socio;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.TipoPlan;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Importación masiva de socios desde CSV (alta de una sede nueva)
+// Columnas obligatorias de la cabecera: nombre, apellidos, email, telefono, tipoPlan (en cualquier orden).
+// En lugar de existsByEmail + findByTipo + saveAndFlush por socio:
+//  - los emails existentes se cargan una vez en un HashSet (y se le añaden los del propio fichero)
+//  - los planes se cargan una vez
+//  - los socios se guardan en lotes de "tamano-lote" filas, un lote por transacción; los INSERT
+//    salen agrupados (hibernate.jdbc.batch_size) gracias a los ids por secuencia
+// Una fila incorrecta no detiene la importación: se informa con su número de línea.
+// Si un lote falla en la BD (p. ej. un email dado de alta a la vez desde la API) se reintenta fila a fila.
+@Service
+public class ImportacionSociosService {
+    private static final Logger logger = LoggerFactory.getLogger(ImportacionSociosService.class);
+
+    private static final int MAX_ERRORES = 1000;
+    private static final List<String> COLUMNAS = List.of("nombre", "apellidos", "email", "telefono", "tipoplan");
+
+    @Autowired
+    private SocioRepository socioRepository;
+
+    @Autowired
+    private PlanRepository planRepository;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private BuscadorSociosService buscadorSociosService;
+
+    // Filas insertadas en cada lote (y en cada transacción)
+    @Value("${gimnasio.socios.importacion.tamano-lote:1000}")
+    private int tamanoLote;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public ImportacionSociosService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public ImportacionSociosDTO importar(MultipartFile archivo) {
+        if (archivo.isEmpty()) {
+            throw new BusinessRuleException("El fichero está vacío");
+        }
+        long inicio = System.currentTimeMillis();
+        Map<TipoPlan, Plan> planes = new EnumMap<>(TipoPlan.class);
+        planRepository.findAll().forEach(plan -> planes.put(plan.getTipo(), plan));
+        Set<String> emails = cargarEmails();
+
+        Resultado resultado = new Resultado();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(archivo.getInputStream(), StandardCharsets.UTF_8))) {
+            String cabecera = reader.readLine();
+            if (cabecera == null) {
+                throw new BusinessRuleException("El fichero está vacío");
+            }
+            Map<String, Integer> posiciones = leerCabecera(cabecera);
+
+            List<Fila> lote = new ArrayList<>(tamanoLote);
+            String linea;
+            int numLinea = 1;
+            while ((linea = reader.readLine()) != null) {
+                numLinea++;
+                if (linea.isBlank()) {
+                    continue;
+                }
+                resultado.filasLeidas++;
+                Fila fila = leerFila(numLinea, linea, posiciones, planes, emails, resultado);
+                if (fila != null) {
+                    lote.add(fila);
+                }
+                if (lote.size() == tamanoLote) {
+                    insertar(lote, resultado);
+                    lote.clear();
+                }
+            }
+            insertar(lote, resultado);
+        } catch (IOException e) {
+            throw new BusinessRuleException("No se ha podido leer el fichero: " + e.getMessage());
+        }
+
+        logger.info("Importación de socios: {} filas, {} creados, {} con error en {} ms.",
+                resultado.filasLeidas, resultado.creados, resultado.conError, System.currentTimeMillis() - inicio);
+        return new ImportacionSociosDTO(resultado.filasLeidas, resultado.creados, resultado.conError, resultado.errores);
+    }
+
+    private Set<String> cargarEmails() {
+        return transactionTemplate.execute(status -> {
+            Set<String> emails = new HashSet<>();
+            try (Stream<String> existentes = socioRepository.streamEmails()) {
+                existentes.forEach(emails::add);
+            }
+            return emails;
+        });
+    }
+
+    private static Map<String, Integer> leerCabecera(String cabecera) {
+        List<String> nombres = partirCsv(cabecera.startsWith("﻿") ? cabecera.substring(1) : cabecera);
+        Map<String, Integer> posiciones = new HashMap<>();
+        for (int i = 0; i < nombres.size(); i++) {
+            posiciones.put(nombres.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String columna : COLUMNAS) {
+            if (!posiciones.containsKey(columna)) {
+                throw new BusinessRuleException("Falta la columna obligatoria en la cabecera: " + columna);
+            }
+        }
+        return posiciones;
+    }
+
+    // Valida la fila como SocioCreateDTO; devuelve null (y anota el error) si no se puede importar
+    private Fila leerFila(int numLinea, String linea, Map<String, Integer> posiciones, Map<TipoPlan, Plan> planes,
+                          Set<String> emails, Resultado resultado) {
+        List<String> valores = partirCsv(linea);
+        SocioCreateDTO dto = new SocioCreateDTO();
+        dto.setNombre(valor(valores, posiciones.get("nombre")));
+        dto.setApellidos(valor(valores, posiciones.get("apellidos")));
+        dto.setEmail(valor(valores, posiciones.get("email")));
+        dto.setTelefono(valor(valores, posiciones.get("telefono")));
+
+        String tipoPlan = valor(valores, posiciones.get("tipoplan"));
+        if (tipoPlan != null) {
+            try {
+                dto.setTipoPlan(TipoPlan.valueOf(tipoPlan.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                resultado.error(numLinea, dto.getEmail(), "Tipo de plan no válido: " + tipoPlan);
+                return null;
+            }
+        }
+
+        Set<ConstraintViolation<SocioCreateDTO>> violaciones = validator.validate(dto);
+        if (!violaciones.isEmpty()) {
+            resultado.error(numLinea, dto.getEmail(), violaciones.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+            return null;
+        }
+        Plan plan = planes.get(dto.getTipoPlan());
+        if (plan == null) {
+            resultado.error(numLinea, dto.getEmail(), "Plan no encontrado con tipo: " + dto.getTipoPlan());
+            return null;
+        }
+        // El set incluye los emails ya importados del fichero, así también detecta duplicados internos
+        if (!emails.add(dto.getEmail().toLowerCase(Locale.ROOT))) {
+            resultado.error(numLinea, dto.getEmail(), "Ya existe un socio con el email: " + dto.getEmail());
+            return null;
+        }
+        return new Fila(numLinea, dto, plan);
+    }
+
+    private void insertar(List<Fila> lote, Resultado resultado) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Socio> socios = socioRepository.saveAllAndFlush(lote.stream().map(this::crearSocio).toList());
+                socios.forEach(buscadorSociosService::indexar);
+            });
+            resultado.creados += lote.size();
+        } catch (DataAccessException e) {
+            // Se reintenta fila a fila para saber cuál ha fallado
+            logger.warn("Lote de importación rechazado por la BD, se reintenta fila a fila: {}", e.getMessage());
+            for (Fila fila : lote) {
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            buscadorSociosService.indexar(socioRepository.saveAndFlush(crearSocio(fila))));
+                    resultado.creados++;
+                } catch (DataAccessException ex) {
+                    resultado.error(fila.numLinea(), fila.dto().getEmail(), "Error al guardar: " + ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private Socio crearSocio(Fila fila) {
+        SocioCreateDTO dto = fila.dto();
+        Socio socio = new Socio();
+        socio.setNombre(dto.getNombre());
+        socio.setApellidos(dto.getApellidos());
+        socio.setEmail(dto.getEmail());
+        socio.setTelefono(dto.getTelefono());
+        socio.setPlan(fila.plan());
+        return socio;
+    }
+
+    private static String valor(List<String> valores, int posicion) {
+        if (posicion >= valores.size()) {
+            return null;
+        }
+        String valor = valores.get(posicion).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    // Separa una línea CSV por comas respetando los campos entre comillas ("" = comilla literal)
+    private static List<String> partirCsv(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private record Fila(int numLinea, SocioCreateDTO dto, Plan plan) {
+    }
+
+    // Contadores y errores de una importación
+    private static class Resultado {
+        private int filasLeidas;
+        private int creados;
+        private int conError;
+        private final List<ErrorImportacionDTO> errores = new ArrayList<>();
+
+        void error(int numLinea, String email, String mensaje) {
+            conError++;
+            if (errores.size() < MAX_ERRORES) {
+                errores.add(new ErrorImportacionDTO(numLinea, email, mensaje));
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ListaEsperaDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ResourceNotFoundException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ClaseRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ListaEsperaRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.SocioRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Clase;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.ListaEspera;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Socio;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.TipoPlan;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Servicio para la lista de espera de las clases grupales completas
+// Un socio se apunta una vez y, cuando alguien cancela, ReservaService le da la plaza
+// automáticamente en la misma transacción de la cancelación (por orden de llegada)
+@Service
+@Transactional
+public class ListaEsperaService {
+    // Repositorio de la lista de espera
+    @Autowired
+    private ListaEsperaRepository listaEsperaRepository;
+    // Repositorio de clases
+    @Autowired
+    private ClaseRepository claseRepository;
+    // Repositorio de socios
+    @Autowired
+    private SocioRepository socioRepository;
+    // Asignación de plazas y asistentes por clase
+    @Autowired
+    private AsignacionPlazasService asignacionPlazasService;
+
+    // Apunta al socio en la lista de espera de una clase grupal completa
+    public ListaEsperaDTO apuntar(Long idClase, Long idSocio) {
+        Clase clase = claseRepository.findById(idClase)
+                .orElseThrow(() -> new ResourceNotFoundException("Clase no encontrada con id: " + idClase));
+        Socio socio = socioRepository.findById(idSocio)
+                .orElseThrow(() -> new ResourceNotFoundException("Socio no encontrado con id: " + idSocio));
+
+        if (clase.getEsPrivada()) {
+            throw new BusinessRuleException("Las clases privadas no tienen lista de espera");
+        }
+        if (!socio.getEsActivo()) {
+            throw new BusinessRuleException("Un socio inactivo no puede apuntarse a la lista de espera");
+        }
+        if (socio.getPlan() == null || socio.getPlan().getTipo() != TipoPlan.PREMIUM) {
+            throw new BusinessRuleException("Solo los socios con plan PREMIUM pueden reservar clases grupales");
+        }
+        if (asignacionPlazasService.esAsistente(idClase, idSocio)) {
+            throw new BusinessRuleException("El socio ya tiene una reserva confirmada para esta clase");
+        }
+        if (clase.getPlazasOcupadas() < clase.getAforoMaximo()) {
+            throw new BusinessRuleException("La clase todavía tiene plazas libres. Realice la reserva directamente");
+        }
+        if (listaEsperaRepository.existsByClaseIdClaseAndSocioIdSocio(idClase, idSocio)) {
+            throw new BusinessRuleException("El socio ya está en la lista de espera de esta clase");
+        }
+
+        ListaEspera espera = new ListaEspera();
+        espera.setClase(clase);
+        espera.setSocio(socio);
+        ListaEspera savedEspera = listaEsperaRepository.save(espera);
+        return convertToDTO(savedEspera);
+    }
+
+    // Posición del socio en la lista de espera (o si ya tiene plaza)
+    @Transactional(readOnly = true)
+    public ListaEsperaDTO consultar(Long idClase, Long idSocio) {
+        return listaEsperaRepository.findByClaseIdAndSocioId(idClase, idSocio)
+                .map(this::convertToDTO)
+                .orElseGet(() -> {
+                    if (!asignacionPlazasService.esAsistente(idClase, idSocio)) {
+                        throw new ResourceNotFoundException("El socio " + idSocio + " no está en la lista de espera de la clase " + idClase);
+                    }
+                    return new ListaEsperaDTO(idClase, idSocio, null, null, true);
+                });
+    }
+
+    // Quita al socio de la lista de espera
+    public void abandonar(Long idClase, Long idSocio) {
+        ListaEspera espera = listaEsperaRepository.findByClaseIdAndSocioId(idClase, idSocio)
+                .orElseThrow(() -> new ResourceNotFoundException("El socio " + idSocio + " no está en la lista de espera de la clase " + idClase));
+        listaEsperaRepository.delete(espera);
+    }
+
+    private ListaEsperaDTO convertToDTO(ListaEspera espera) {
+        Long idClase = espera.getClase().getIdClase();
+        ListaEsperaDTO dto = new ListaEsperaDTO();
+        dto.setIdClase(idClase);
+        dto.setIdSocio(espera.getSocio().getIdSocio());
+        dto.setPosicion(listaEsperaRepository.countPosicion(idClase, espera.getIdEspera()));
+        dto.setFechaAlta(espera.getFechaAlta());
+        dto.setReservaConfirmada(false);
+        return dto;
+    }
+}
@@ -22,6 +22,7 @@ public class PlanService {
     private PlanRepository planRepository;
 
     // Devuelve todos los planes
+    @Transactional(readOnly = true)
     public List<PlanDTO> findAll() {
         return planRepository.findAll().stream()
                 .map(this::convertToDTO)
@@ -29,6 +30,7 @@ public class PlanService {
     }
 
     // Busca plan por tipo (clave primaria)
+    @Transactional(readOnly = true)
     public PlanDTO findById(TipoPlan tipo) {
         Plan plan = planRepository.findById(tipo)
                 .orElseThrow(() -> new ResourceNotFoundException("Plan no encontrado con tipo: " + tipo));
@@ -36,10 +38,13 @@ public class PlanService {
     }
 
     // Busca plan por tipo (campo único)
+    @Transactional(readOnly = true)
     public PlanDTO findByTipo(TipoPlan tipo) {
-        Plan plan = planRepository.findByTipo(tipo)
-                .orElseThrow(() -> new ResourceNotFoundException("Plan no encontrado con tipo: " + tipo));
-        return convertToDTO(plan);
+        // Solo se comprueba que existe (consulta cacheada): el tipo es todo lo que tiene el plan
+        if (!planRepository.existsByTipo(tipo)) {
+            throw new ResourceNotFoundException("Plan no encontrado con tipo: " + tipo);
+        }
+        return new PlanDTO(tipo);
     }
 
     private PlanDTO convertToDTO(Plan plan) {
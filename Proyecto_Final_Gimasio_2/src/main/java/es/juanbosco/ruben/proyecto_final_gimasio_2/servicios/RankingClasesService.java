@@ -0,0 +1,222 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ReservaRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Ranking de popularidad de las clases grupales de hoy en adelante
+// Cada clase tiene un contador de reservas no canceladas (total y por día de reserva de los
+// últimos 30 días) que se actualiza al crear, cancelar o borrar reservas, así el ranking
+// se sirve desde memoria sin recorrer la tabla de reservas. Se reconstruye al arrancar.
+// Cada noche se quitan las clases de días pasados y las que se han quedado sin reservas, así el mapa
+// no crece con el histórico. Las MAX_LIMIT primeras de cada ventana se guardan "cache-seg" segundos:
+// las consultas seguidas del ranking no recorren todas las clases cada vez.
+@Service
+@Transactional
+public class RankingClasesService implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(RankingClasesService.class);
+
+    // Días máximos de la ventana de popularidad
+    public static final int MAX_DIAS = 30;
+    // Clases máximas que se pueden pedir en el ranking
+    public static final int MAX_LIMIT = 100;
+
+    // Repositorio de reservas
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    // idClase -> popularidad de la clase
+    // Los cambios y la limpieza pasan por compute, así una reserva no se suma a una clase recién quitada
+    private final Map<Long, Popularidad> popularidadPorClase = new ConcurrentHashMap<>();
+    // dias -> ids de las MAX_LIMIT clases más populares de la ventana
+    private final Cache<Integer, List<Long>> rankings;
+
+    public RankingClasesService(@Value("${gimnasio.ranking.cache-seg:10}") long cacheSeg) {
+        this.rankings = Caffeine.newBuilder()
+                .maximumSize(MAX_DIAS + 1)
+                .expireAfterWrite(Duration.ofSeconds(cacheSeg))
+                .build();
+    }
+
+    // Reconstruye el ranking desde la BD al arrancar la aplicación
+    @Override
+    public void run(ApplicationArguments args) {
+        popularidadPorClase.clear();
+        LocalDate hoy = LocalDate.now();
+        for (Object[] fila : reservaRepository.countGrupalesPorClase(EstadoReserva.CANCELADA, hoy)) {
+            popularidadPorClase.computeIfAbsent((Long) fila[0], id -> new Popularidad((LocalDate) fila[1]))
+                    .cargarTotal((Long) fila[2]);
+        }
+        LocalDateTime desde = hoy.minusDays(MAX_DIAS - 1).atStartOfDay();
+        for (Object[] fila : reservaRepository.countGrupalesPorClaseYDia(EstadoReserva.CANCELADA, desde, hoy)) {
+            Popularidad popularidad = popularidadPorClase.get((Long) fila[0]);
+            if (popularidad != null) {
+                popularidad.cargarDia((LocalDate) fila[1], (Long) fila[2]);
+            }
+        }
+        rankings.invalidateAll();
+        logger.info("Ranking de popularidad cargado para {} clases.", popularidadPorClase.size());
+    }
+
+    // Suma una reserva a la clase cuando se confirma la transacción
+    public void registrarReserva(Long idClase, LocalDate fechaClase, LocalDateTime fechaReservar) {
+        LocalDate dia = fechaReservar.toLocalDate();
+        AccionesTransaccion.alConfirmar(() -> popularidadPorClase.compute(idClase, (id, popularidad) -> {
+            Popularidad actual = popularidad != null ? popularidad : new Popularidad(fechaClase);
+            actual.sumar(dia, 1);
+            return actual;
+        }));
+    }
+
+    // Resta una reserva de la clase (cancelación o borrado) cuando se confirma la transacción
+    public void anularReserva(Long idClase, LocalDateTime fechaReservar) {
+        LocalDate dia = fechaReservar.toLocalDate();
+        AccionesTransaccion.alConfirmar(() -> popularidadPorClase.computeIfPresent(idClase, (id, popularidad) -> {
+            popularidad.sumar(dia, -1);
+            return popularidad;
+        }));
+    }
+
+    // Quita del ranking las clases de días pasados y las que se han quedado sin reservas
+    @Scheduled(cron = "${gimnasio.ranking.limpieza.cron:0 15 0 * * *}")
+    public void limpiar() {
+        LocalDate hoy = LocalDate.now();
+        int antes = popularidadPorClase.size();
+        popularidadPorClase.keySet().forEach(idClase -> popularidadPorClase.computeIfPresent(idClase,
+                (id, popularidad) -> popularidad.caducada(hoy) ? null : popularidad));
+        rankings.invalidateAll();
+        logger.info("Ranking de popularidad: {} clases quitadas, quedan {}.",
+                antes - popularidadPorClase.size(), popularidadPorClase.size());
+    }
+
+    // Quita la clase del ranking (clase eliminada)
+    public void olvidarClase(Long idClase) {
+        AccionesTransaccion.alConfirmar(() -> popularidadPorClase.remove(idClase));
+    }
+
+    // Devuelve los ids de las clases más populares, de más a menos reservas
+    // dias = 0 cuenta todas las reservas; entre 1 y 30 solo las hechas en los últimos días
+    public List<Long> findIdsPopulares(int limit, int dias) {
+        if (dias < 0 || dias > MAX_DIAS) {
+            throw new BusinessRuleException("Los días deben ser 0 (todas las reservas) o entre 1 y " + MAX_DIAS);
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BusinessRuleException("El límite debe estar entre 1 y " + MAX_LIMIT);
+        }
+        List<Long> ranking = rankings.get(dias, this::calcularRanking);
+        return ranking.subList(0, Math.min(limit, ranking.size()));
+    }
+
+    // Las MAX_LIMIT clases de hoy en adelante con más reservas en la ventana
+    private List<Long> calcularRanking(int dias) {
+        LocalDate hoy = LocalDate.now();
+
+        // Montículo de mínimos con las MAX_LIMIT mejores clases vistas hasta el momento
+        Comparator<long[]> porReservas = Comparator.<long[]>comparingLong(e -> e[1])
+                .thenComparing(e -> -e[0]);
+        PriorityQueue<long[]> mejores = new PriorityQueue<>(MAX_LIMIT + 1, porReservas);
+        popularidadPorClase.forEach((idClase, popularidad) -> {
+            if (popularidad.fechaClase.isBefore(hoy)) {
+                return;
+            }
+            long reservas = popularidad.contar(hoy.toEpochDay(), dias);
+            if (reservas <= 0) {
+                return;
+            }
+            mejores.offer(new long[]{idClase, reservas});
+            if (mejores.size() > MAX_LIMIT) {
+                mejores.poll();
+            }
+        });
+
+        Long[] ids = new Long[mejores.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = mejores.poll()[0];
+        }
+        return List.of(ids);
+    }
+
+    // Contador de reservas de una clase: total y un búfer circular con las reservas por día
+    private static class Popularidad {
+        private final LocalDate fechaClase;
+        private long total;
+        private final long[] dias = new long[MAX_DIAS];
+        private final long[] reservasPorDia = new long[MAX_DIAS];
+
+        Popularidad(LocalDate fechaClase) {
+            this.fechaClase = fechaClase;
+        }
+
+        synchronized void cargarTotal(long reservas) {
+            total = reservas;
+        }
+
+        synchronized void cargarDia(LocalDate dia, long reservas) {
+            int i = posicion(dia.toEpochDay());
+            if (i >= 0) {
+                reservasPorDia[i] += reservas;
+            }
+        }
+
+        synchronized void sumar(LocalDate dia, int reservas) {
+            total = Math.max(0, total + reservas);
+            int i = posicion(dia.toEpochDay());
+            if (i >= 0) {
+                reservasPorDia[i] = Math.max(0, reservasPorDia[i] + reservas);
+            }
+        }
+
+        // La clase ya ha pasado o no le queda ninguna reserva
+        synchronized boolean caducada(LocalDate hoy) {
+            return fechaClase.isBefore(hoy) || total == 0;
+        }
+
+        synchronized long contar(long hoy, int numDias) {
+            if (numDias == 0) {
+                return total;
+            }
+            long suma = 0;
+            for (int i = 0; i < MAX_DIAS; i++) {
+                if (dias[i] > hoy - numDias && dias[i] <= hoy) {
+                    suma += reservasPorDia[i];
+                }
+            }
+            return suma;
+        }
+
+        // Posición del día en el búfer; si la posición tenía un día más antiguo se reutiliza.
+        // Devuelve -1 si el día ya no cabe en el búfer (más antiguo que el que ocupa su posición)
+        private int posicion(long dia) {
+            int i = (int) Math.floorMod(dia, (long) MAX_DIAS);
+            if (dias[i] == dia) {
+                return i;
+            }
+            if (dias[i] > dia) {
+                return -1;
+            }
+            dias[i] = dia;
+            reservasPorDia[i] = 0;
+            return i;
+        }
+    }
+}
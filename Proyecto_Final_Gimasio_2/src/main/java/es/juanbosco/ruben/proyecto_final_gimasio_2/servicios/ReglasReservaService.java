@@ -0,0 +1,248 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ContextoReservaDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ReservaCreateDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ReservaRechazadaException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ResourceNotFoundException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.TipoPlan;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Reglas de negocio de la creación de reservas, ordenadas por coste
+// Cada regla declara su coste y a qué clases se aplica (grupales, privadas o todas):
+//  - CONTEXTO: solo lee el contexto de la reserva, ya cargado con una consulta (socio activo, plan, bono...)
+//  - MEMORIA: anota la reserva en estructuras en memoria (asistentes, agenda); se deshace si la reserva no se guarda
+//  - BD: UPDATE condicional o lectura bloqueante en la BD (plaza, reserva duplicada, sesión del bono)
+// Se evalúan de menor a mayor coste (y en el orden en que se declaran dentro del mismo coste); la primera
+// que falla rechaza la reserva. Así los rechazos habituales en las aperturas (clase llena, plan BASICO)
+// no llegan a tocar la BD ni las estructuras compartidas, y no rellenan la traza de la excepción.
+// Las reglas que anotan algo (asistente, agenda, plaza) declaran también cómo deshacerlo: en la creación
+// lo deshace el rollback, pero la plaza de la lista de espera sigue con el siguiente apuntado (comprobar).
+// Métricas por regla: gimnasio.reservas.reglas (tiempo de evaluación) y gimnasio.reservas.reglas.rechazos
+@Service
+public class ReglasReservaService {
+    private static final String RESERVA_DUPLICADA =
+            "El socio ya tiene una reserva confirmada para esta clase. No se pueden hacer reservas duplicadas.";
+    // Rechazos que dependen de la clase y no del socio: el resto de apuntados tampoco podría reservarla
+    private static final Set<String> RECHAZOS_DE_LA_CLASE = Set.of("clase-sin-empezar", "plazas-libres", "ocupar-plaza");
+
+    // Asignación de plazas y asistentes por clase
+    @Autowired
+    private AsignacionPlazasService asignacionPlazasService;
+    // Agenda por día para detectar solapes de horario
+    @Autowired
+    private AgendaService agendaService;
+    // Consumo atómico de sesiones de bonos
+    @Autowired
+    private SesionesBonoService sesionesBonoService;
+
+    private final List<Regla> reglas;
+
+    public ReglasReservaService(MeterRegistry registry) {
+        List<Regla> lista = new ArrayList<>();
+
+        lista.add(regla(registry, "clase-sin-empezar", Coste.CONTEXTO, Ambito.TODAS, (contexto, solicitud) ->
+                LocalDateTime.of(contexto.getFechaClase(), contexto.getHoraInicio()).isAfter(LocalDateTime.now()) ? null
+                        : rechazo("No se puede reservar una clase que ya ha empezado o ha terminado")));
+        lista.add(regla(registry, "socio-activo", Coste.CONTEXTO, Ambito.TODAS, (contexto, solicitud) ->
+                contexto.getSocioActivo() ? null : rechazo("Un socio inactivo no puede realizar reservas")));
+
+        // Clases grupales: plan PREMIUM y sin bono
+        lista.add(regla(registry, "plan-premium", Coste.CONTEXTO, Ambito.GRUPALES, (contexto, solicitud) ->
+                contexto.getTipoPlan() == TipoPlan.PREMIUM ? null
+                        : rechazo("Solo los socios con plan PREMIUM pueden reservar clases grupales")));
+        lista.add(regla(registry, "grupal-sin-bono", Coste.CONTEXTO, Ambito.GRUPALES, (contexto, solicitud) ->
+                solicitud.getIdBono() == null ? null : rechazo("Las clases grupales no requieren bono")));
+
+        // Clases privadas: bono del socio, del mismo entrenador, activo y con sesiones
+        lista.add(regla(registry, "privada-con-bono", Coste.CONTEXTO, Ambito.PRIVADAS, (contexto, solicitud) ->
+                solicitud.getIdBono() != null ? null : rechazo("Las clases privadas requieren un bono")));
+        lista.add(regla(registry, "bono-existe", Coste.CONTEXTO, Ambito.PRIVADAS, (contexto, solicitud) ->
+                contexto.getIdBono() != null ? null
+                        : new Rechazo("Bono no encontrado con id: " + solicitud.getIdBono(), true)));
+        lista.add(regla(registry, "bono-del-socio", Coste.CONTEXTO, Ambito.PRIVADAS, (contexto, solicitud) ->
+                contexto.getIdSocioBono().equals(contexto.getIdSocio()) ? null : rechazo(
+                        "El bono no pertenece al socio que está realizando la reserva. " +
+                        "El bono pertenece al socio con ID: " + contexto.getIdSocioBono() +
+                        ", pero se está intentando reservar para el socio con ID: " + contexto.getIdSocio())));
+        lista.add(regla(registry, "bono-del-entrenador", Coste.CONTEXTO, Ambito.PRIVADAS, (contexto, solicitud) ->
+                contexto.getIdEntrenadorClase().equals(contexto.getIdEntrenadorBono()) ? null : rechazo(
+                        "El entrenador de la clase no coincide con el entrenador del bono. " +
+                        "La clase es impartida por el entrenador con ID: " + contexto.getIdEntrenadorClase() +
+                        ", pero el bono es para el entrenador con ID: " + contexto.getIdEntrenadorBono())));
+        lista.add(regla(registry, "bono-activo", Coste.CONTEXTO, Ambito.PRIVADAS, (contexto, solicitud) ->
+                contexto.getBonoActivo() ? null : rechazo("El bono no está activo")));
+        lista.add(regla(registry, "bono-con-sesiones", Coste.CONTEXTO, Ambito.PRIVADAS, (contexto, solicitud) ->
+                contexto.getSesionesRestantesBono() > 0 ? null : rechazo("El bono no tiene sesiones restantes")));
+        lista.add(regla(registry, "entrenador-activo", Coste.CONTEXTO, Ambito.PRIVADAS, (contexto, solicitud) ->
+                contexto.getEntrenadorBonoActivo() ? null : rechazo("El entrenador asociado al bono no está activo")));
+
+        // Si la consulta ya ha visto la clase llena no se intenta ocupar la plaza
+        lista.add(regla(registry, "plazas-libres", Coste.CONTEXTO, Ambito.TODAS, (contexto, solicitud) ->
+                sinPlazas(contexto) ? rechazoAforo(contexto) : null));
+
+        // El registro del asistente es atómico y se deshace si la reserva no llega a guardarse
+        // (filtro rápido con los asistentes de esta instancia; la comprobación definitiva es reserva-duplicada-bd)
+        lista.add(regla(registry, "reserva-duplicada", Coste.MEMORIA, Ambito.TODAS, (contexto, solicitud) ->
+                asignacionPlazasService.registrarAsistente(contexto.getIdClase(), contexto.getIdSocio()) ? null
+                        : rechazo(RESERVA_DUPLICADA),
+                contexto -> asignacionPlazasService.quitarAsistente(contexto.getIdClase(), contexto.getIdSocio())));
+        // El hueco se anota en la agenda en el momento y se libera si la reserva no llega a guardarse
+        lista.add(regla(registry, "sin-solapes", Coste.MEMORIA, Ambito.TODAS, (contexto, solicitud) -> {
+            Long solape = agendaService.ocuparSocio(contexto.getIdSocio(), contexto.getIdClase(),
+                    contexto.getFechaClase(), contexto.getHoraInicio(), contexto.getHoraFin());
+            return solape == null ? null
+                    : rechazo("El socio ya tiene reservada otra clase que se solapa con esta (clase con id: " + solape + ")");
+        }, contexto -> agendaService.quitarSocio(contexto.getIdSocio(), contexto.getIdClase(),
+                contexto.getFechaClase(), contexto.getHoraInicio(), contexto.getHoraFin())));
+
+        // UPDATE condicional: falla si entretanto se ha alcanzado el aforo máximo
+        lista.add(regla(registry, "ocupar-plaza", Coste.BD, Ambito.TODAS, (contexto, solicitud) ->
+                asignacionPlazasService.ocuparPlaza(contexto.getIdClase()) ? null : rechazoAforo(contexto),
+                contexto -> asignacionPlazasService.liberarPlaza(contexto.getIdClase(), contexto.getIdSocio())));
+        // Reserva confirmada en la BD (p. ej. desde otra instancia); va después de ocupar-plaza, que deja
+        // bloqueada la fila de la clase hasta el final de la transacción
+        lista.add(regla(registry, "reserva-duplicada-bd", Coste.BD, Ambito.TODAS, (contexto, solicitud) ->
+                asignacionPlazasService.sinReservaConfirmada(contexto.getIdClase(), contexto.getIdSocio()) ? null
+                        : rechazo(RESERVA_DUPLICADA)));
+        // UPDATE condicional: falla si otra reserva ha gastado la última sesión
+        lista.add(regla(registry, "consumir-sesion", Coste.BD, Ambito.PRIVADAS, (contexto, solicitud) ->
+                sesionesBonoService.consumirSesion(contexto.getIdBono()) ? null
+                        : rechazo("El bono no tiene sesiones restantes")));
+
+        // Orden estable: dentro del mismo coste se respeta el orden de declaración
+        lista.sort(Comparator.comparing(Regla::coste));
+        this.reglas = List.copyOf(lista);
+    }
+
+    // Evalúa las reglas que se aplican a la clase; lanza la excepción de la primera que falla
+    public void validar(ContextoReservaDTO contexto, ReservaCreateDTO solicitud) {
+        Fallo fallo = evaluar(contexto, solicitud, new ArrayList<>());
+        if (fallo == null) {
+            return;
+        }
+        if (fallo.rechazo().noEncontrado()) {
+            throw new ResourceNotFoundException(fallo.rechazo().mensaje());
+        }
+        throw new ReservaRechazadaException(fallo.regla().nombre(), fallo.rechazo().mensaje());
+    }
+
+    // Igual que validar, pero sin lanzar excepción: devuelve el nombre de la primera regla que falla (null si
+    // se cumplen todas) tras deshacer en el momento lo anotado por las anteriores. Para dar la plaza de la
+    // lista de espera, que sigue en la misma transacción con el siguiente apuntado.
+    public String comprobar(ContextoReservaDTO contexto, ReservaCreateDTO solicitud) {
+        List<Regla> cumplidas = new ArrayList<>();
+        Fallo fallo = evaluar(contexto, solicitud, cumplidas);
+        if (fallo == null) {
+            return null;
+        }
+        for (int i = cumplidas.size() - 1; i >= 0; i--) {
+            if (cumplidas.get(i).deshacer() != null) {
+                cumplidas.get(i).deshacer().accept(contexto);
+            }
+        }
+        return fallo.regla().nombre();
+    }
+
+    // Indica si la regla rechaza por la clase (ya empezada o sin plaza) y no por el socio
+    public static boolean esRechazoDeLaClase(String regla) {
+        return RECHAZOS_DE_LA_CLASE.contains(regla);
+    }
+
+    // Evalúa las reglas en orden y devuelve la primera que falla (null si ninguna); anota las que se cumplen
+    private Fallo evaluar(ContextoReservaDTO contexto, ReservaCreateDTO solicitud, List<Regla> cumplidas) {
+        for (Regla regla : reglas) {
+            if (!regla.ambito().aplica(contexto)) {
+                continue;
+            }
+            long inicio = System.nanoTime();
+            Rechazo rechazo = regla.evaluacion().evaluar(contexto, solicitud);
+            regla.tiempo().record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            if (rechazo != null) {
+                regla.rechazos().increment();
+                return new Fallo(regla, rechazo);
+            }
+            cumplidas.add(regla);
+        }
+        return null;
+    }
+
+    private static Regla regla(MeterRegistry registry, String nombre, Coste coste, Ambito ambito, Evaluacion evaluacion) {
+        return regla(registry, nombre, coste, ambito, evaluacion, null);
+    }
+
+    private static Regla regla(MeterRegistry registry, String nombre, Coste coste, Ambito ambito, Evaluacion evaluacion,
+                               Consumer<ContextoReservaDTO> deshacer) {
+        Timer tiempo = Timer.builder("gimnasio.reservas.reglas")
+                .description("Tiempo de evaluación de cada regla de reserva")
+                .tag("regla", nombre)
+                .tag("coste", coste.name())
+                .register(registry);
+        Counter rechazos = Counter.builder("gimnasio.reservas.reglas.rechazos")
+                .description("Reservas rechazadas por cada regla")
+                .tag("regla", nombre)
+                .register(registry);
+        return new Regla(nombre, coste, ambito, evaluacion, deshacer, tiempo, rechazos);
+    }
+
+    private static Rechazo rechazo(String mensaje) {
+        return new Rechazo(mensaje, false);
+    }
+
+    private static Rechazo rechazoAforo(ContextoReservaDTO contexto) {
+        return rechazo(contexto.getEsPrivada()
+                ? "La clase privada ya está reservada"
+                : "La clase ha alcanzado su aforo máximo. Puede apuntarse a la lista de espera");
+    }
+
+    private static boolean sinPlazas(ContextoReservaDTO contexto) {
+        return contexto.getAforoMaximo() != null && contexto.getPlazasOcupadas() >= contexto.getAforoMaximo();
+    }
+
+    // Coste de evaluar una regla, de menor a mayor
+    enum Coste {
+        CONTEXTO, MEMORIA, BD
+    }
+
+    // Clases a las que se aplica una regla
+    enum Ambito {
+        TODAS, GRUPALES, PRIVADAS;
+
+        boolean aplica(ContextoReservaDTO contexto) {
+            return switch (this) {
+                case TODAS -> true;
+                case GRUPALES -> !contexto.getEsPrivada();
+                case PRIVADAS -> contexto.getEsPrivada();
+            };
+        }
+    }
+
+    // Devuelve null si la reserva cumple la regla
+    @FunctionalInterface
+    interface Evaluacion {
+        Rechazo evaluar(ContextoReservaDTO contexto, ReservaCreateDTO solicitud);
+    }
+
+    // Motivo del rechazo; noEncontrado = se responde 404 en lugar de 400
+    record Rechazo(String mensaje, boolean noEncontrado) {
+    }
+
+    // deshacer: null si la regla no anota nada
+    private record Regla(String nombre, Coste coste, Ambito ambito, Evaluacion evaluacion,
+                         Consumer<ContextoReservaDTO> deshacer, Timer tiempo, Counter rechazos) {
+    }
+
+    private record Fallo(Regla regla, Rechazo rechazo) {
+    }
+}
@@ -1,6 +1,8 @@
 package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
 
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ContextoReservaDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.HorarioDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.PaginaCursorDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ReservaCreateDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ReservaDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
@@ -8,20 +10,37 @@ import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ResourceNotFoundE
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.*;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.*;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
-import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.TipoPlan;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.FormatoExportacion;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 // Servicio para la gestión de reservas de clases
 // Incluye validaciones de negocio y conversión a DTO
 @Service
 @Transactional
 public class ReservaService {
+    // Columnas de la exportación en CSV
+    private static final List<ExportacionService.Columna<ReservaDTO>> COLUMNAS_CSV = List.of(
+            new ExportacionService.Columna<>("idReserva", ReservaDTO::getIdReserva),
+            new ExportacionService.Columna<>("idClase", ReservaDTO::getIdClase),
+            new ExportacionService.Columna<>("nombreClase", ReservaDTO::getNombreClase),
+            new ExportacionService.Columna<>("idSocio", ReservaDTO::getIdSocio),
+            new ExportacionService.Columna<>("nombreSocio", ReservaDTO::getNombreSocio),
+            new ExportacionService.Columna<>("fechaReservar", ReservaDTO::getFechaReservar),
+            new ExportacionService.Columna<>("idBono", ReservaDTO::getIdBono),
+            new ExportacionService.Columna<>("estado", ReservaDTO::getEstado),
+            new ExportacionService.Columna<>("horaInicio", r -> r.getHorario() == null ? null : r.getHorario().getHoraInicio()),
+            new ExportacionService.Columna<>("horaFin", r -> r.getHorario() == null ? null : r.getHorario().getHoraFin()),
+            new ExportacionService.Columna<>("fechaCheckin", ReservaDTO::getFechaCheckin));
+
     // Repositorio de reservas
     @Autowired
     private ReservaRepository reservaRepository;
@@ -37,20 +56,66 @@ public class ReservaService {
     // Repositorio de horarios
     @Autowired
     private HorarioRepository horarioRepository;
+    // Asignación de plazas y asistentes por clase
+    @Autowired
+    private AsignacionPlazasService asignacionPlazasService;
+    // Consumo y devolución atómicos de sesiones de bonos
+    @Autowired
+    private SesionesBonoService sesionesBonoService;
+    // Ranking de popularidad de las clases
+    @Autowired
+    private RankingClasesService rankingClasesService;
+    // Repositorio de la lista de espera
+    @Autowired
+    private ListaEsperaRepository listaEsperaRepository;
+    // Exportación masiva en streaming
+    @Autowired
+    private ExportacionService exportacionService;
+    // Agenda por día para detectar solapes de horario
+    @Autowired
+    private AgendaService agendaService;
+    // Lista de accesos de hoy para el torno
+    @Autowired
+    private CheckinService checkinService;
+    // Reglas de negocio de la creación de reservas
+    @Autowired
+    private ReglasReservaService reglasReservaService;
 
     // Devuelve todas las reservas paginadas
+    @Transactional(readOnly = true)
     public Page<ReservaDTO> findAll(Pageable pageable) {
         return reservaRepository.findAll(pageable)
                 .map(this::convertToDTO);
     }
 
     // Busca reservas por filtros (socio, estado)
+    @Transactional(readOnly = true)
     public Page<ReservaDTO> findByFiltros(Long idSocio, EstadoReserva estado, Pageable pageable) {
         return reservaRepository.findByFiltros(idSocio, estado, pageable)
                 .map(this::convertToDTO);
     }
 
+    // Listado por cursor: reservas siguientes a "after" (id), sin contar el total
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<ReservaDTO> findSiguientes(Long after, Long idSocio, EstadoReserva estado, int size) {
+        if (size < 1 || size > 1000) {
+            throw new BusinessRuleException("El tamaño de página debe estar entre 1 y 1000");
+        }
+        return PaginaCursorDTO.crear(
+                reservaRepository.findSiguientes(after == null ? 0L : after, idSocio, estado, PageRequest.of(0, size + 1)),
+                size, Reserva::getIdReserva, this::convertToDTO);
+    }
+
+    // Exporta las reservas (opcionalmente de un periodo y estado) en NDJSON o CSV.
+    // La consulta se ejecuta al escribir la respuesta, fila a fila
+    public StreamingResponseBody exportar(FormatoExportacion formato, LocalDateTime desde, LocalDateTime hasta, EstadoReserva estado) {
+        return exportacionService.exportar(formato,
+                () -> reservaRepository.streamParaExportar(desde, hasta, estado),
+                this::convertToDTO, COLUMNAS_CSV);
+    }
+
     // Busca reserva por ID
+    @Transactional(readOnly = true)
     public ReservaDTO findById(Long id) {
         Reserva reserva = reservaRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Reserva no encontrada con id: " + id));
@@ -58,112 +123,21 @@ public class ReservaService {
     }
 
     // Crea una nueva reserva con validaciones de negocio
+    // Todo lo que necesitan las validaciones (clase, horario, socio, plan y bono) se lee con una sola consulta
     public ReservaDTO create(ReservaCreateDTO createDTO) {
-        Clase clase = claseRepository.findById(createDTO.getIdClase())
-                .orElseThrow(() -> new ResourceNotFoundException("Clase no encontrada con id: " + createDTO.getIdClase()));
-
-        Socio socio = socioRepository.findById(createDTO.getIdSocio())
-                .orElseThrow(() -> new ResourceNotFoundException("Socio no encontrado con id: " + createDTO.getIdSocio()));
-
-        // VALIDACIÓN CRÍTICA: Un socio no puede reservar la misma clase más de una vez
-        boolean yaReservada = reservaRepository.existsByClaseIdClaseAndSocioIdSocioAndEstado(
-                clase.getIdClase(),
-                socio.getIdSocio(),
-                EstadoReserva.CONFIRMADA
-        );
-
-        if (yaReservada) {
-            throw new BusinessRuleException(
-                "El socio ya tiene una reserva confirmada para esta clase. " +
-                "No se pueden hacer reservas duplicadas."
-            );
-        }
-
-        // VALIDACIÓN 1: Socio debe estar activo
-        if (!socio.getEsActivo()) {
-            throw new BusinessRuleException("Un socio inactivo no puede realizar reservas");
-        }
-
-        // VALIDACIÓN 2: Si la clase es grupal (esPrivada = false)
-        if (!clase.getEsPrivada()) {
-            // 2.1: El socio debe tener plan PREMIUM para reservar clases grupales
-            if (socio.getPlan() == null || socio.getPlan().getTipo() != TipoPlan.PREMIUM) {
-                throw new BusinessRuleException("Solo los socios con plan PREMIUM pueden reservar clases grupales");
-            }
-
-            // 2.2: Verificar que no se haya alcanzado el aforo máximo
-            long reservasConfirmadas = reservaRepository.countByClaseIdAndEstado(
-                    clase.getIdClase(), EstadoReserva.CONFIRMADA
-            );
-
-            if (reservasConfirmadas >= clase.getAforoMaximo()) {
-                throw new BusinessRuleException("La clase ha alcanzado su aforo máximo");
-            }
-
-            // 2.3: Para clases grupales, NO debe tener bono
-            if (createDTO.getIdBono() != null) {
-                throw new BusinessRuleException("Las clases grupales no requieren bono");
-            }
-        }
-
-        // VALIDACIÓN 3: Si la clase es privada (esPrivada = true)
-        Bono bono = null;
-        if (clase.getEsPrivada()) {
-            // 3.1: Debe proporcionar un bono
-            if (createDTO.getIdBono() == null) {
-                throw new BusinessRuleException("Las clases privadas requieren un bono");
-            }
-
-            bono = bonoRepository.findById(createDTO.getIdBono())
-                    .orElseThrow(() -> new ResourceNotFoundException("Bono no encontrado con id: " + createDTO.getIdBono()));
-
-            // 3.2: El bono debe pertenecer al socio que está haciendo la reserva
-            if (!bono.getSocio().getIdSocio().equals(socio.getIdSocio())) {
-                throw new BusinessRuleException(
-                    "El bono no pertenece al socio que está realizando la reserva. " +
-                    "El bono pertenece al socio con ID: " + bono.getSocio().getIdSocio() +
-                    ", pero se está intentando reservar para el socio con ID: " + socio.getIdSocio()
-                );
-            }
-
-            // 3.3: El entrenador de la clase debe coincidir con el entrenador del bono
-            if (!clase.getEntrenador().getIdSocio().equals(bono.getEntrenador().getIdSocio())) {
-                throw new BusinessRuleException(
-                    "El entrenador de la clase no coincide con el entrenador del bono. " +
-                    "La clase es impartida por el entrenador con ID: " + clase.getEntrenador().getIdSocio() +
-                    ", pero el bono es para el entrenador con ID: " + bono.getEntrenador().getIdSocio()
-                );
-            }
-
-            // 3.4: El bono debe estar activo
-            if (!bono.getActivo()) {
-                throw new BusinessRuleException("El bono no está activo");
-            }
-
-            // 3.5: El bono debe tener sesiones restantes
-            if (bono.getSesionesRestantes() <= 0) {
-                throw new BusinessRuleException("El bono no tiene sesiones restantes");
-            }
-
-            // 3.6: Validar que el entrenador asociado al bono esté activo
-            if (!bono.getEntrenador().getEsActivo()) {
-                throw new BusinessRuleException("El entrenador asociado al bono no está activo");
-            }
+        Long idClase = createDTO.getIdClase();
+        Long idSocio = createDTO.getIdSocio();
+        ContextoReservaDTO contexto = reservaRepository.findContexto(idClase, idSocio, createDTO.getIdBono())
+                .orElseThrow(() -> claseRepository.existsById(idClase)
+                        ? new ResourceNotFoundException("Socio no encontrado con id: " + idSocio)
+                        : new ResourceNotFoundException("Clase no encontrada con id: " + idClase));
 
-            // 3.7: Decrementar sesión automáticamente
-            bono.decrementarSesion();
-            bonoRepository.save(bono);
-        }
+        // Reglas de negocio ordenadas por coste: primero las que solo leen el contexto y al final los UPDATE
+        // condicionales de plaza y sesión del bono (ver ReglasReservaService)
+        reglasReservaService.validar(contexto, createDTO);
 
         // Crear la reserva
-        Reserva reserva = new Reserva();
-        reserva.setClase(clase);
-        reserva.setSocio(socio);
-        reserva.setBono(bono);
-        reserva.setEstado(EstadoReserva.CONFIRMADA);
-
-        Reserva savedReserva = reservaRepository.save(reserva);
-        return convertToDTO(savedReserva);
+        return convertToDTO(guardarConfirmada(contexto), contexto);
     }
 
     public ReservaDTO cancelar(Long id) {
@@ -187,44 +161,137 @@ public class ReservaService {
         }
 
         reserva.setEstado(EstadoReserva.CANCELADA);
+        asignacionPlazasService.liberarPlaza(reserva.getClase().getIdClase(), reserva.getSocio().getIdSocio());
+        agendaService.liberarSocio(reserva.getSocio().getIdSocio(), reserva.getClase());
+        checkinService.quitarReserva(reserva);
+        if (!reserva.getClase().getEsPrivada()) {
+            rankingClasesService.anularReserva(reserva.getClase().getIdClase(), reserva.getFechaReservar());
+        }
 
-        // Si es una clase privada con bono, devolver la sesión
+        // Si es una clase privada con bono, devolver la sesión (y reactivar el bono si estaba inactivo)
         if (reserva.getBono() != null) {
-            Bono bono = reserva.getBono();
-            bono.setSesionesRestantes(bono.getSesionesRestantes() + 1);
-            bono.setActivo(true); // Reactivar el bono si estaba inactivo
-            bonoRepository.save(bono);
+            sesionesBonoService.devolverSesion(reserva.getBono().getIdBono());
         }
 
         Reserva updatedReserva = reservaRepository.save(reserva);
+        promocionarListaEspera(reserva.getClase());
         return convertToDTO(updatedReserva);
     }
 
-    public void completarReservasAutomaticamente() {
-        // Este método puede ser llamado por un scheduler para marcar como completadas
-        // las reservas cuya hora de fin ya ha pasado
-        LocalDateTime ahora = LocalDateTime.now();
-
-        reservaRepository.findAll().stream()
-                .filter(r -> r.getEstado() == EstadoReserva.CONFIRMADA)
-                .filter(r -> {
-                    LocalDateTime fechaHoraFin = LocalDateTime.of(
-                            r.getClase().getFechaClase(),
-                            r.getClase().getHorario().getHoraFin()
-                    );
-                    return ahora.isAfter(fechaHoraFin);
-                })
-                .forEach(r -> {
-                    r.setEstado(EstadoReserva.COMPLETADA);
-                    reservaRepository.save(r);
-                });
+    public void delete(Long id) {
+        Reserva reserva = reservaRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Reserva no encontrada con id: " + id));
+
+        // Si la reserva seguía confirmada, su plaza queda libre
+        if (reserva.getEstado() == EstadoReserva.CONFIRMADA) {
+            asignacionPlazasService.liberarPlaza(reserva.getClase().getIdClase(), reserva.getSocio().getIdSocio());
+            agendaService.liberarSocio(reserva.getSocio().getIdSocio(), reserva.getClase());
+            checkinService.quitarReserva(reserva);
+        }
+        // Las reservas canceladas ya no contaban en el ranking de popularidad
+        if (reserva.getEstado() != EstadoReserva.CANCELADA && !reserva.getClase().getEsPrivada()) {
+            rankingClasesService.anularReserva(reserva.getClase().getIdClase(), reserva.getFechaReservar());
+        }
+        reservaRepository.delete(reserva);
+        if (reserva.getEstado() == EstadoReserva.CONFIRMADA) {
+            promocionarListaEspera(reserva.getClase());
+        }
     }
 
-    public void delete(Long id) {
-        if (!reservaRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Reserva no encontrada con id: " + id);
+    // Libera las reservas de un socio antes de borrarlo: se borran en cascada con él sin pasar por delete
+    public void liberarReservasDeSocio(Long idSocio) {
+        liberarReservas(reservaRepository.findBySocioIdAndEstadoNot(idSocio, EstadoReserva.CANCELADA));
+    }
+
+    // Lo mismo con las reservas hechas con un bono antes de borrarlo
+    public void liberarReservasDeBono(Long idBono) {
+        liberarReservas(reservaRepository.findByBonoIdAndEstadoNot(idBono, EstadoReserva.CANCELADA));
+    }
+
+    // Mismo efecto que delete para cada reserva (plazas, agenda, torno, ranking y lista de espera),
+    // pero las plazas se devuelven con un solo UPDATE para todas las clases
+    private void liberarReservas(List<Reserva> reservas) {
+        List<Reserva> confirmadas = reservas.stream()
+                .filter(reserva -> reserva.getEstado() == EstadoReserva.CONFIRMADA)
+                .toList();
+        asignacionPlazasService.liberarPlazas(confirmadas);
+        for (Reserva reserva : confirmadas) {
+            agendaService.liberarSocio(reserva.getSocio().getIdSocio(), reserva.getClase());
+            checkinService.quitarReserva(reserva);
+        }
+        for (Reserva reserva : reservas) {
+            if (!reserva.getClase().getEsPrivada()) {
+                rankingClasesService.anularReserva(reserva.getClase().getIdClase(), reserva.getFechaReservar());
+            }
+        }
+        confirmadas.stream().map(Reserva::getClase).distinct().forEach(this::promocionarListaEspera);
+    }
+
+    // Da la plaza libre al primero de la lista de espera (solo clases grupales que aún no han empezado)
+    // Se hace en la misma transacción que la cancelación o el borrado, así la plaza no queda libre
+    // para una reserva directa entre medias. Cada apuntado pasa por las mismas reglas que una reserva
+    // directa: los que ya no pueden reservar se descartan, y si la clase ya no admite reservas (sin plaza
+    // o ya empezada) siguen esperando.
+    private void promocionarListaEspera(Clase clase) {
+        if (clase.getEsPrivada()
+                || !LocalDateTime.of(clase.getFechaClase(), clase.getHorario().getHoraInicio()).isAfter(LocalDateTime.now())) {
+            return;
+        }
+        Long idClase = clase.getIdClase();
+        while (true) {
+            ListaEspera espera = listaEsperaRepository.findFirstByClaseIdClaseOrderByIdEsperaAsc(idClase).orElse(null);
+            if (espera == null) {
+                return;
+            }
+            // El contexto se lee de la BD: las plazas ocupadas ya incluyen la que se acaba de liberar
+            Long idSocio = espera.getSocio().getIdSocio();
+            ContextoReservaDTO contexto = reservaRepository.findContexto(idClase, idSocio, null).orElse(null);
+            String rechazo = contexto == null ? null
+                    : reglasReservaService.comprobar(contexto, new ReservaCreateDTO(idClase, idSocio, null));
+            if (rechazo != null && ReglasReservaService.esRechazoDeLaClase(rechazo)) {
+                return;
+            }
+            listaEsperaRepository.delete(espera);
+            if (contexto == null || rechazo != null) {
+                listaEsperaRepository.flush();
+                continue;
+            }
+            guardarConfirmada(contexto);
+            return;
         }
-        reservaRepository.deleteById(id);
+    }
+
+    // Guarda la reserva confirmada; la clase, el socio y el bono se enlazan por su id, sin volver a leerlos
+    private Reserva guardarConfirmada(ContextoReservaDTO contexto) {
+        Reserva reserva = new Reserva();
+        reserva.setClase(claseRepository.getReferenceById(contexto.getIdClase()));
+        reserva.setSocio(socioRepository.getReferenceById(contexto.getIdSocio()));
+        if (contexto.getIdBono() != null) {
+            reserva.setBono(bonoRepository.getReferenceById(contexto.getIdBono()));
+        }
+        reserva.setEstado(EstadoReserva.CONFIRMADA);
+
+        Reserva savedReserva = reservaRepository.save(reserva);
+        checkinService.anotarReserva(savedReserva.getIdReserva(), contexto);
+        if (!contexto.getEsPrivada()) {
+            rankingClasesService.registrarReserva(contexto.getIdClase(), contexto.getFechaClase(), savedReserva.getFechaReservar());
+        }
+        return savedReserva;
+    }
+
+    // ReservaDTO de una reserva recién creada a partir de su contexto (sin cargar clase, socio ni horario)
+    private static ReservaDTO convertToDTO(Reserva reserva, ContextoReservaDTO contexto) {
+        ReservaDTO dto = new ReservaDTO();
+        dto.setIdReserva(reserva.getIdReserva());
+        dto.setIdClase(contexto.getIdClase());
+        dto.setNombreClase(contexto.getNombreClase());
+        dto.setIdSocio(contexto.getIdSocio());
+        dto.setNombreSocio(contexto.getNombreSocio() + " " + contexto.getApellidosSocio());
+        dto.setFechaReservar(reserva.getFechaReservar());
+        dto.setIdBono(contexto.getIdBono());
+        dto.setEstado(reserva.getEstado());
+        dto.setHorario(new HorarioDTO(contexto.getIdHorario(), contexto.getHoraInicio(), contexto.getHoraFin()));
+        return dto;
     }
 
     private ReservaDTO convertToDTO(Reserva reserva) {
@@ -236,6 +303,7 @@ public class ReservaService {
         dto.setNombreSocio(reserva.getSocio().getNombre() + " " + reserva.getSocio().getApellidos());
         dto.setFechaReservar(reserva.getFechaReservar());
         dto.setEstado(reserva.getEstado());
+        dto.setFechaCheckin(reserva.getFechaCheckin());
 
         if (reserva.getBono() != null) {
             dto.setIdBono(reserva.getBono().getIdBono());
@@ -0,0 +1,353 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.CancelacionSerieDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.HorarioDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SerieClasesCreateDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SerieClasesDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SerieClasesUpdateDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ResourceNotFoundException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ClaseRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.EntrenadorRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.HorarioRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.SerieClasesRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Clase;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Entrenador;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Horario;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.SerieClases;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.Coleccion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Servicio para las series de clases semanales (horario fijo del gimnasio)
+// Al crear una serie se generan de una vez todas sus sesiones hasta el horizonte
+// (gimnasio.series.horizonte-dias) en una sola transacción: una carga conjunta de los días de la agenda
+// que no estén en memoria, una consulta para comprobar los nombres y los INSERT en lotes. Cada noche se amplía el horizonte de las series activas.
+// Cambiar el horario/entrenador o cancelar una serie son UPDATE/DELETE sobre todas sus sesiones,
+// sin cargarlas una a una.
+@Service
+@Transactional
+public class SerieClasesService {
+    private static final Logger logger = LoggerFactory.getLogger(SerieClasesService.class);
+
+    // Repositorio de series
+    @Autowired
+    private SerieClasesRepository serieClasesRepository;
+    // Repositorio de clases
+    @Autowired
+    private ClaseRepository claseRepository;
+    // Repositorio de horarios
+    @Autowired
+    private HorarioRepository horarioRepository;
+    // Repositorio de entrenadores
+    @Autowired
+    private EntrenadorRepository entrenadorRepository;
+    // Asignación de plazas y asistentes por clase
+    @Autowired
+    private AsignacionPlazasService asignacionPlazasService;
+    // Ranking de popularidad de las clases
+    @Autowired
+    private RankingClasesService rankingClasesService;
+    // Versiones de las colecciones para los ETag
+    @Autowired
+    private VersionesColeccionService versionesColeccionService;
+    // Agenda por día para detectar solapes de horario
+    @Autowired
+    private AgendaService agendaService;
+    // Calendario de clases en memoria
+    @Autowired
+    private CalendarioService calendarioService;
+    // Lista de accesos de hoy para el torno
+    @Autowired
+    private CheckinService checkinService;
+
+    // Días por delante de hoy hasta los que se generan las sesiones
+    @Value("${gimnasio.series.horizonte-dias:180}")
+    private int horizonteDias;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public SerieClasesService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SerieClasesDTO> findAll() {
+        return serieClasesRepository.findAll().stream()
+                .map(serie -> convertToDTO(serie, null))
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public SerieClasesDTO findById(Long id) {
+        return convertToDTO(getSerie(id), null);
+    }
+
+    // Crea la serie y genera sus sesiones hasta el horizonte
+    public SerieClasesDTO create(SerieClasesCreateDTO createDTO) {
+        if (serieClasesRepository.existsByNombre(createDTO.getNombre())) {
+            throw new BusinessRuleException("Ya existe una serie con el nombre: " + createDTO.getNombre());
+        }
+        if (createDTO.getFechaInicio().isBefore(LocalDate.now())) {
+            throw new BusinessRuleException("La fecha de inicio no puede ser anterior a hoy");
+        }
+        if (createDTO.getFechaFin() != null && createDTO.getFechaFin().isBefore(createDTO.getFechaInicio())) {
+            throw new BusinessRuleException("La fecha de fin no puede ser anterior a la de inicio");
+        }
+        if (!createDTO.getEsPrivada() && (createDTO.getAforoMaximo() == null || createDTO.getAforoMaximo() <= 0)) {
+            throw new BusinessRuleException("Las clases grupales deben tener un aforo máximo válido");
+        }
+
+        SerieClases serie = new SerieClases();
+        serie.setNombre(createDTO.getNombre());
+        serie.setDescripcion(createDTO.getDescripcion());
+        serie.setEsPrivada(createDTO.getEsPrivada());
+        serie.setAforoMaximo(createDTO.getEsPrivada() ? 1 : createDTO.getAforoMaximo());
+        serie.setHorario(getHorario(createDTO.getIdHorario()));
+        serie.setEntrenador(getEntrenador(createDTO.getIdEntrenador()));
+        serie.setDiasSemana(new HashSet<>(createDTO.getDiasSemana()));
+        serie.setFechaInicio(createDTO.getFechaInicio());
+        serie.setFechaFin(createDTO.getFechaFin());
+        serie.setActiva(true);
+
+        SerieClases savedSerie = serieClasesRepository.save(serie);
+        int generadas = generar(savedSerie, LocalDate.now().plusDays(horizonteDias), true);
+        return convertToDTO(savedSerie, generadas);
+    }
+
+    // Cambia el horario y/o el entrenador de las sesiones desde la fecha indicada (y de las que se generen después)
+    public SerieClasesDTO update(Long id, SerieClasesUpdateDTO updateDTO) {
+        SerieClases serie = getSerie(id);
+        if (updateDTO.getIdHorario() == null && updateDTO.getIdEntrenador() == null) {
+            throw new BusinessRuleException("Debe indicar el nuevo horario o el nuevo entrenador");
+        }
+        LocalDate desde = fechaDesde(updateDTO.getDesde());
+
+        Horario horario = updateDTO.getIdHorario() == null ? serie.getHorario() : getHorario(updateDTO.getIdHorario());
+        Entrenador entrenador = updateDTO.getIdEntrenador() == null ? serie.getEntrenador() : getEntrenador(updateDTO.getIdEntrenador());
+        // Mismo cálculo que Clase.validate(), que no se ejecuta con un UPDATE masivo
+        int duracion = (int) Duration.between(horario.getHoraInicio(), horario.getHoraFin()).toMinutes();
+        if (duracion < 15 || duracion > 180) {
+            throw new BusinessRuleException("La duración del horario debe estar entre 15 y 180 minutos");
+        }
+
+        // Ninguna sesión puede quedar solapada con otra clase del entrenador
+        List<Object[]> sesionesSerie = claseRepository.findFechasBySerie(id, desde);
+        agendaService.precargar(sesionesSerie.stream().map(sesion -> (LocalDate) sesion[1]).collect(Collectors.toSet()));
+        for (Object[] sesion : sesionesSerie) {
+            Long solape = agendaService.buscarSolapeEntrenador(entrenador.getIdSocio(), (LocalDate) sesion[1],
+                    horario.getHoraInicio(), horario.getHoraFin(), (Long) sesion[0]);
+            if (solape != null) {
+                throw new BusinessRuleException("La sesión del " + sesion[1] + " se solaparía con otra clase del entrenador (clase con id: " + solape + ")");
+            }
+        }
+
+        int modificadas = claseRepository.updateHorarioYEntrenadorBySerie(id, desde, horario, duracion, entrenador);
+        serie.setHorario(horario);
+        serie.setEntrenador(entrenador);
+        agendaService.invalidarTodo();
+        calendarioService.invalidarTodo();
+        checkinService.recargar();
+        versionesColeccionService.registrarCambio(Coleccion.CLASES);
+        return convertToDTO(serie, modificadas);
+    }
+
+    // Cancela la serie desde la fecha indicada: deja de generar sesiones y borra las que no tienen reservas
+    // Las sesiones con reservas se conservan para que se gestionen una a una (avisar, cancelar, devolver sesiones)
+    public CancelacionSerieDTO cancelar(Long id, LocalDate desdeFecha) {
+        SerieClases serie = getSerie(id);
+        LocalDate desde = fechaDesde(desdeFecha);
+
+        List<Long> idsClase = claseRepository.findIdsSinReservasBySerie(id, desde);
+        int eliminadas = idsClase.isEmpty() ? 0 : claseRepository.deleteByIdClaseIn(idsClase);
+        for (Long idClase : idsClase) {
+            asignacionPlazasService.olvidarClase(idClase);
+            rankingClasesService.olvidarClase(idClase);
+        }
+        long conservadas = claseRepository.countBySerieIdSerieAndFechaClaseGreaterThanEqual(id, desde);
+
+        serie.setFechaFin(desde.minusDays(1));
+        if (!desde.isAfter(LocalDate.now())) {
+            serie.setActiva(false);
+        }
+        if (eliminadas > 0) {
+            agendaService.invalidarTodo();
+            versionesColeccionService.registrarCambio(Coleccion.CLASES);
+        }
+        return new CancelacionSerieDTO(id, eliminadas, (int) conservadas);
+    }
+
+    // Ejecución periódica (por defecto cada noche): amplía el horizonte de las series activas
+    // Cada serie en su propia transacción; si una falla se sigue con las demás
+    @Scheduled(cron = "${gimnasio.series.ampliacion.cron:0 30 3 * * *}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void ampliarSeries() {
+        LocalDate limite = LocalDate.now().plusDays(horizonteDias);
+        int total = 0;
+        for (Long idSerie : serieClasesRepository.findIdsPendientesDeAmpliar(limite)) {
+            try {
+                Integer generadas = transactionTemplate.execute(status -> serieClasesRepository.findById(idSerie)
+                        .filter(SerieClases::getActiva)
+                        .map(serie -> generar(serie, limite, false))
+                        .orElse(0));
+                total += generadas == null ? 0 : generadas;
+            } catch (RuntimeException e) {
+                logger.error("No se ha podido ampliar la serie {}: {}", idSerie, e.getMessage());
+            }
+        }
+        if (total > 0) {
+            logger.info("Ampliación de series: {} sesiones generadas hasta {}.", total, limite);
+        }
+    }
+
+    // Genera las sesiones que faltan desde generadaHasta hasta el límite (sin pasar de fechaFin)
+    // estricto = true: si algún nombre ya está en uso se rechaza todo; si no, esas sesiones se saltan
+    private int generar(SerieClases serie, LocalDate limite, boolean estricto) {
+        LocalDate desde = serie.getGeneradaHasta() == null ? serie.getFechaInicio() : serie.getGeneradaHasta().plusDays(1);
+        LocalDate hoy = LocalDate.now();
+        if (desde.isBefore(hoy)) {
+            desde = hoy;
+        }
+        LocalDate hasta = serie.getFechaFin() != null && serie.getFechaFin().isBefore(limite) ? serie.getFechaFin() : limite;
+        if (desde.isAfter(hasta)) {
+            return 0;
+        }
+
+        Long idEntrenador = serie.getEntrenador().getIdSocio();
+        LocalTime inicio = serie.getHorario().getHoraInicio();
+        LocalTime fin = serie.getHorario().getHoraFin();
+        List<LocalDate> fechas = desde.datesUntil(hasta.plusDays(1))
+                .filter(fecha -> serie.getDiasSemana().contains(fecha.getDayOfWeek()))
+                .toList();
+        agendaService.precargar(fechas);
+
+        Map<String, LocalDate> sesiones = new LinkedHashMap<>();
+        int solapadas = 0;
+        for (LocalDate fecha : fechas) {
+            // Días en los que el entrenador ya tiene otra clase a esa hora
+            Long solape = agendaService.buscarSolapeEntrenador(idEntrenador, fecha, inicio, fin, null);
+            if (solape != null) {
+                if (estricto) {
+                    throw new BusinessRuleException("La sesión del " + fecha + " se solapa con otra clase del entrenador (clase con id: " + solape + ")");
+                }
+                solapadas++;
+                continue;
+            }
+            sesiones.put(serie.getNombre() + " " + fecha, fecha);
+        }
+        if (solapadas > 0) {
+            logger.warn("Serie {}: se omiten {} sesiones que se solapan con otras clases del entrenador.", serie.getIdSerie(), solapadas);
+        }
+        Set<String> existentes = sesiones.isEmpty() ? Set.of() : new HashSet<>(claseRepository.findNombresExistentes(sesiones.keySet()));
+        if (!existentes.isEmpty()) {
+            if (estricto) {
+                throw new BusinessRuleException("Ya existe una clase con el nombre: " + existentes.iterator().next());
+            }
+            logger.warn("Serie {}: se omiten {} sesiones cuyo nombre ya está en uso.", serie.getIdSerie(), existentes.size());
+        }
+
+        List<Clase> clases = new ArrayList<>(sesiones.size());
+        sesiones.forEach((nombre, fecha) -> {
+            if (!existentes.contains(nombre)) {
+                clases.add(crearSesion(serie, nombre, fecha));
+            }
+        });
+        claseRepository.saveAll(clases);
+        for (Clase clase : clases) {
+            // Una clase creada entre la comprobación y el guardado deshace toda la generación
+            Long solape = agendaService.ocuparEntrenador(clase);
+            if (solape != null) {
+                throw new BusinessRuleException("La sesión del " + clase.getFechaClase() + " se solapa con otra clase del entrenador (clase con id: " + solape + ")");
+            }
+        }
+        serie.setGeneradaHasta(hasta);
+        if (!clases.isEmpty()) {
+            calendarioService.invalidarFechas(clases.stream().map(Clase::getFechaClase).collect(Collectors.toSet()));
+            versionesColeccionService.registrarCambio(Coleccion.CLASES);
+        }
+        return clases.size();
+    }
+
+    private Clase crearSesion(SerieClases serie, String nombre, LocalDate fecha) {
+        Clase clase = new Clase();
+        clase.setNombre(nombre);
+        clase.setDescripcion(serie.getDescripcion());
+        clase.setFechaClase(fecha);
+        clase.setEsPrivada(serie.getEsPrivada());
+        clase.setAforoMaximo(serie.getAforoMaximo());
+        clase.setHorario(serie.getHorario());
+        clase.setEntrenador(serie.getEntrenador());
+        clase.setSerie(serie);
+        return clase;
+    }
+
+    private LocalDate fechaDesde(LocalDate desde) {
+        LocalDate hoy = LocalDate.now();
+        if (desde == null) {
+            return hoy;
+        }
+        if (desde.isBefore(hoy)) {
+            throw new BusinessRuleException("No se pueden modificar sesiones pasadas");
+        }
+        return desde;
+    }
+
+    private SerieClases getSerie(Long id) {
+        return serieClasesRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Serie no encontrada con id: " + id));
+    }
+
+    private Horario getHorario(Long idHorario) {
+        return horarioRepository.findById(idHorario)
+                .orElseThrow(() -> new ResourceNotFoundException("Horario no encontrado con id: " + idHorario));
+    }
+
+    private Entrenador getEntrenador(Long idEntrenador) {
+        return entrenadorRepository.findById(idEntrenador)
+                .orElseThrow(() -> new ResourceNotFoundException("Entrenador no encontrado con id: " + idEntrenador));
+    }
+
+    private SerieClasesDTO convertToDTO(SerieClases serie, Integer clasesAfectadas) {
+        SerieClasesDTO dto = new SerieClasesDTO();
+        dto.setIdSerie(serie.getIdSerie());
+        dto.setNombre(serie.getNombre());
+        dto.setDescripcion(serie.getDescripcion());
+        dto.setEsPrivada(serie.getEsPrivada());
+        dto.setAforoMaximo(serie.getAforoMaximo());
+
+        HorarioDTO horarioDTO = new HorarioDTO();
+        horarioDTO.setIdHorario(serie.getHorario().getIdHorario());
+        horarioDTO.setHoraInicio(serie.getHorario().getHoraInicio());
+        horarioDTO.setHoraFin(serie.getHorario().getHoraFin());
+        dto.setHorario(horarioDTO);
+
+        dto.setIdEntrenador(serie.getEntrenador().getIdSocio());
+        dto.setNombreEntrenador(serie.getEntrenador().getNombre());
+        dto.setDiasSemana(Set.copyOf(serie.getDiasSemana()));
+        dto.setFechaInicio(serie.getFechaInicio());
+        dto.setFechaFin(serie.getFechaFin());
+        dto.setGeneradaHasta(serie.getGeneradaHasta());
+        dto.setActiva(serie.getActiva());
+        dto.setClasesAfectadas(clasesAfectadas);
+        return dto;
+    }
+}
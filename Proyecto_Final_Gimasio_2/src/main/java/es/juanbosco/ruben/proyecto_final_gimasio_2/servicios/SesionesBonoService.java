@@ -0,0 +1,56 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.BonoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Servicio para consumir y devolver sesiones de bonos
+// Cada operación es un único UPDATE condicional, así dos reservas simultáneas con el mismo
+// bono no pueden gastar la misma sesión ni una devolución puede superar las sesiones totales.
+// Métricas: gimnasio.bono.sesiones{operacion, resultado}
+@Service
+@Transactional
+public class SesionesBonoService {
+
+    // Repositorio de bonos
+    @Autowired
+    private BonoRepository bonoRepository;
+
+    private final Counter consumidas;
+    private final Counter consumosRechazados;
+    private final Counter devueltas;
+    private final Counter devolucionesRechazadas;
+
+    public SesionesBonoService(MeterRegistry registry) {
+        this.consumidas = contador(registry, "consumir", "ok");
+        this.consumosRechazados = contador(registry, "consumir", "rechazada");
+        this.devueltas = contador(registry, "devolver", "ok");
+        this.devolucionesRechazadas = contador(registry, "devolver", "rechazada");
+    }
+
+    // Consume una sesión del bono. Devuelve false si otra petición ya gastó la última sesión
+    // o el bono ya no está activo (conflicto con una reserva concurrente)
+    public boolean consumirSesion(Long idBono) {
+        boolean ok = bonoRepository.consumirSesion(idBono) == 1;
+        (ok ? consumidas : consumosRechazados).increment();
+        return ok;
+    }
+
+    // Devuelve una sesión al bono y lo reactiva. Devuelve false si el bono ya tenía todas sus sesiones
+    public boolean devolverSesion(Long idBono) {
+        boolean ok = bonoRepository.devolverSesion(idBono) == 1;
+        (ok ? devueltas : devolucionesRechazadas).increment();
+        return ok;
+    }
+
+    private static Counter contador(MeterRegistry registry, String operacion, String resultado) {
+        return Counter.builder("gimnasio.bono.sesiones")
+                .description("Operaciones sobre las sesiones de los bonos")
+                .tag("operacion", operacion)
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+}
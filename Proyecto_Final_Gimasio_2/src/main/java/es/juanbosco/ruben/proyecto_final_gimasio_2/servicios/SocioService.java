@@ -1,23 +1,43 @@
 package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
 
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.PaginaCursorDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SocioCreateDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SocioDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SocioUpdateDTO;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ResourceNotFoundException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ListaEsperaRepository;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.PlanRepository;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.SocioRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Entrenador;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Plan;
 import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Socio;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.Coleccion;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.FormatoExportacion;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.TipoPlan;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
 
 @Service
 @Transactional
 public class SocioService {
+    // Columnas de la exportación en CSV
+    private static final List<ExportacionService.Columna<SocioDTO>> COLUMNAS_CSV = List.of(
+            new ExportacionService.Columna<>("idSocio", SocioDTO::getIdSocio),
+            new ExportacionService.Columna<>("nombre", SocioDTO::getNombre),
+            new ExportacionService.Columna<>("apellidos", SocioDTO::getApellidos),
+            new ExportacionService.Columna<>("email", SocioDTO::getEmail),
+            new ExportacionService.Columna<>("telefono", SocioDTO::getTelefono),
+            new ExportacionService.Columna<>("fechaAlta", SocioDTO::getFechaAlta),
+            new ExportacionService.Columna<>("esActivo", SocioDTO::getEsActivo),
+            new ExportacionService.Columna<>("tipoPlan", SocioDTO::getTipoPlan));
 
     @Autowired
     private SocioRepository socioRepository;
@@ -25,21 +45,73 @@ public class SocioService {
     @Autowired
     private PlanRepository planRepository;
 
+    @Autowired
+    private ListaEsperaRepository listaEsperaRepository;
+
+    @Autowired
+    private BuscadorSociosService buscadorSociosService;
+
+    @Autowired
+    private ExportacionService exportacionService;
+
+    // Los entrenadores también son socios: al modificarlos aquí hay que invalidar su caché
+    @Autowired
+    private DatosReferenciaService datosReferenciaService;
+
+    // Versiones de las colecciones para los ETag (entrenadores)
+    @Autowired
+    private VersionesColeccionService versionesColeccionService;
+
+    // Agenda por día para detectar solapes de horario (clases de los entrenadores)
+    @Autowired
+    private AgendaService agendaService;
+    // Calendario de clases en memoria
+    @Autowired
+    private CalendarioService calendarioService;
+    // Lista de accesos de hoy para el torno
+    @Autowired
+    private CheckinService checkinService;
+    // Liberación de las reservas del socio antes de borrarlo
+    @Autowired
+    private ReservaService reservaService;
+
+    @Transactional(readOnly = true)
     public Page<SocioDTO> findAll(Pageable pageable) {
         return socioRepository.findOnlySocios(pageable)
                 .map(this::convertToDTO);
     }
 
+    @Transactional(readOnly = true)
     public Page<SocioDTO> findAllActivos(Pageable pageable) {
         return socioRepository.findAllActivos(pageable)
                 .map(this::convertToDTO);
     }
 
+    @Transactional(readOnly = true)
     public Page<SocioDTO> findByFiltros(String nombre, String email, Boolean esActivo, Pageable pageable) {
         return socioRepository.findByFiltros(nombre, email, esActivo, pageable)
                 .map(this::convertToDTO);
     }
 
+    // Listado por cursor: socios siguientes a "after" (id), sin contar el total
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<SocioDTO> findSiguientes(Long after, Boolean esActivo, int size) {
+        if (size < 1 || size > 1000) {
+            throw new BusinessRuleException("El tamaño de página debe estar entre 1 y 1000");
+        }
+        return PaginaCursorDTO.crear(
+                socioRepository.findSiguientes(after == null ? 0L : after, esActivo, PageRequest.of(0, size + 1)),
+                size, Socio::getIdSocio, this::convertToDTO);
+    }
+
+    // Exporta los socios en NDJSON o CSV (la consulta se ejecuta al escribir la respuesta)
+    public StreamingResponseBody exportar(FormatoExportacion formato, Boolean esActivo) {
+        return exportacionService.exportar(formato,
+                () -> socioRepository.streamParaExportar(esActivo),
+                this::convertToDTO, COLUMNAS_CSV);
+    }
+
+    @Transactional(readOnly = true)
     public SocioDTO findById(Long id) {
         Socio socio = socioRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Socio no encontrado con id: " + id));
@@ -52,8 +124,7 @@ public class SocioService {
             throw new BusinessRuleException("Ya existe un socio con el email: " + createDTO.getEmail());
         }
 
-        Plan plan = planRepository.findByTipo(createDTO.getTipoPlan())
-                .orElseThrow(() -> new ResourceNotFoundException("Plan no encontrado con tipo: " + createDTO.getTipoPlan()));
+        Plan plan = getPlan(createDTO.getTipoPlan());
 
         Socio socio = new Socio();
         socio.setNombre(createDTO.getNombre());
@@ -63,6 +134,7 @@ public class SocioService {
         socio.setPlan(plan);
 
         Socio savedSocio = socioRepository.saveAndFlush(socio);
+        buscadorSociosService.indexar(savedSocio);
         return convertToDTO(savedSocio);
     }
 
@@ -93,9 +165,7 @@ public class SocioService {
             if (!socio.getEsActivo()) {
                 throw new BusinessRuleException("Solo los socios activos pueden cambiar de plan");
             }
-            Plan plan = planRepository.findByTipo(updateDTO.getTipoPlan())
-                    .orElseThrow(() -> new ResourceNotFoundException("Plan no encontrado con tipo: " + updateDTO.getTipoPlan()));
-            socio.setPlan(plan);
+            socio.setPlan(getPlan(updateDTO.getTipoPlan()));
         }
 
         if (updateDTO.getEsActivo() != null) {
@@ -103,14 +173,36 @@ public class SocioService {
         }
 
         Socio updatedSocio = socioRepository.save(socio);
+        buscadorSociosService.indexar(updatedSocio);
+        if (updatedSocio instanceof Entrenador) {
+            datosReferenciaService.invalidarEntrenador(id);
+            versionesColeccionService.registrarCambio(Coleccion.ENTRENADORES, Coleccion.CLASES);
+        }
         return convertToDTO(updatedSocio);
     }
 
     public void delete(Long id) {
-        if (!socioRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Socio no encontrado con id: " + id);
-        }
+        Socio socio = socioRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Socio no encontrado con id: " + id));
+        listaEsperaRepository.deleteBySocioId(id);
+        // Sus reservas se borran en cascada: antes se devuelven sus plazas
+        reservaService.liberarReservasDeSocio(id);
         socioRepository.deleteById(id);
+        buscadorSociosService.eliminar(id);
+        datosReferenciaService.invalidarEntrenador(id);
+        // Si era entrenador se borran en cascada sus clases (y las reservas de otros socios)
+        agendaService.invalidarTodo();
+        calendarioService.invalidarTodo();
+        // Sus propias reservas ya se han quitado de la lista del torno
+        if (socio instanceof Entrenador) {
+            checkinService.recargar();
+        }
+        versionesColeccionService.registrarCambio(Coleccion.ENTRENADORES, Coleccion.CLASES);
+    }
+
+    // Búsqueda instantánea por texto parcial (índice en memoria)
+    public List<SocioDTO> buscarSugerencias(String texto, int limit) {
+        return buscadorSociosService.buscar(texto, limit);
     }
 
     public SocioDTO darDeBaja(Long id) {
@@ -119,9 +211,23 @@ public class SocioService {
 
         socio.setEsActivo(false);
         Socio updatedSocio = socioRepository.save(socio);
+        buscadorSociosService.indexar(updatedSocio);
+        if (updatedSocio instanceof Entrenador) {
+            datosReferenciaService.invalidarEntrenador(id);
+            versionesColeccionService.registrarCambio(Coleccion.ENTRENADORES, Coleccion.CLASES);
+        }
         return convertToDTO(updatedSocio);
     }
 
+    // Plan para enlazarlo al socio: la existencia se comprueba en la caché "planes" y el plan se enlaza
+    // por su id (el tipo) sin leerlo de la BD
+    private Plan getPlan(TipoPlan tipo) {
+        if (!planRepository.existsByTipo(tipo)) {
+            throw new ResourceNotFoundException("Plan no encontrado con tipo: " + tipo);
+        }
+        return planRepository.getReferenceById(tipo);
+    }
+
     private SocioDTO convertToDTO(Socio socio) {
         SocioDTO dto = new SocioDTO();
         dto.setIdSocio(socio.getIdSocio());
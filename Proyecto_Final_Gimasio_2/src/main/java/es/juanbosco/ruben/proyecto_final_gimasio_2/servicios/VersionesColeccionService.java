@@ -0,0 +1,38 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.Coleccion;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Número de versión de cada colección (clases, horarios, planes y entrenadores)
+// Los servicios lo incrementan al confirmar cualquier alta, cambio o baja de la colección
+// y EtagInterceptor lo usa como ETag, así un GET sin cambios responde 304 sin ir a la BD.
+// Las versiones empiezan en la hora de arranque para que un reinicio no repita ETags antiguos.
+@Service
+public class VersionesColeccionService {
+
+    private final Map<Coleccion, AtomicLong> versiones = new EnumMap<>(Coleccion.class);
+
+    public VersionesColeccionService() {
+        long inicio = System.currentTimeMillis();
+        for (Coleccion coleccion : Coleccion.values()) {
+            versiones.put(coleccion, new AtomicLong(inicio));
+        }
+    }
+
+    // Marca las colecciones como modificadas cuando se confirma la transacción
+    public void registrarCambio(Coleccion... colecciones) {
+        AccionesTransaccion.alConfirmar(() -> {
+            for (Coleccion coleccion : colecciones) {
+                versiones.get(coleccion).incrementAndGet();
+            }
+        });
+    }
+
+    public long version(Coleccion coleccion) {
+        return versiones.get(coleccion).get();
+    }
+}
@@ -0,0 +1,88 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Plan;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Socio;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.TipoPlan;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Inserción masiva de socios con y sin lotes JDBC (mismo volumen, mismas secuencias)
+// Sin lotes sale un INSERT por fila; con hibernate.jdbc.batch_size = 50 y los ids reservados de 50 en 50
+// salen ~2 sentencias por cada 50 socios. El log muestra sentencias y socios/s de cada caso.
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lotes;MODE=MariaDB;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class InsercionLotesTest {
+    private static final Logger logger = LoggerFactory.getLogger(InsercionLotesTest.class);
+
+    private static final int SOCIOS = 1000;
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estadisticas;
+    private Plan plan;
+
+    @BeforeEach
+    void crearPlan() {
+        plan = new Plan();
+        plan.setTipo(TipoPlan.BASICO);
+        em.persistAndFlush(plan);
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void insercionEnLotes() {
+        long sinLotes = insertar("sinlotes", 1);
+        long conLotes = insertar("lotes", 50);
+
+        assertThat(sinLotes).isGreaterThanOrEqualTo(SOCIOS);
+        assertThat(conLotes).isLessThanOrEqualTo(SOCIOS / 20);
+    }
+
+    // Inserta SOCIOS socios con el tamaño de lote indicado y devuelve las sentencias preparadas
+    private long insertar(String prefijo, int tamanoLote) {
+        Session session = em.getEntityManager().unwrap(Session.class);
+        session.setJdbcBatchSize(tamanoLote);
+        estadisticas.clear();
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < SOCIOS; i++) {
+            Socio socio = new Socio();
+            socio.setNombre("Socio" + i);
+            socio.setApellidos("Prueba");
+            socio.setEmail(prefijo + i + "@gimnasio.com");
+            socio.setTelefono("600000000");
+            socio.setPlan(plan);
+            em.persist(socio);
+        }
+        em.flush();
+        em.clear();
+        long nanos = System.nanoTime() - inicio;
+
+        long sentencias = estadisticas.getPrepareStatementCount();
+        logger.info("Lote {}: {} socios, {} sentencias, {} socios/s",
+                tamanoLote, SOCIOS, sentencias, SOCIOS * 1_000_000_000L / Math.max(nanos, 1));
+        return sentencias;
+    }
+}
@@ -0,0 +1,221 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ContextoReservaDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.*;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.TipoPlan;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Comprueba que los listados paginados se resuelven con una sentencia (más el COUNT de la página),
+// los listados por cursor con una sola sentencia, y que recorrer los campos que usan los DTO
+// no lanza consultas adicionales por fila.
+// También que el contexto de una reserva nueva se lee con una sola sentencia
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:listados;MODE=MariaDB;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ListadosSentenciasTest {
+
+    private static final int FILAS = 5;
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ReservaRepository reservaRepository;
+    @Autowired
+    private BonoRepository bonoRepository;
+    @Autowired
+    private SocioRepository socioRepository;
+
+    private Statistics estadisticas;
+    private Long idSocio;
+    private Long idClase;
+    private Long idBono;
+
+    @BeforeEach
+    void crearDatos() {
+        Plan premium = new Plan();
+        premium.setTipo(TipoPlan.PREMIUM);
+        em.persist(premium);
+
+        Horario horario = new Horario();
+        horario.setHoraInicio(LocalTime.of(9, 0));
+        horario.setHoraFin(LocalTime.of(10, 0));
+        em.persist(horario);
+
+        Entrenador entrenador = new Entrenador();
+        entrenador.setNombre("Ana");
+        entrenador.setApellidos("López");
+        entrenador.setEmail("ana@gimnasio.com");
+        entrenador.setTelefono("600000000");
+        entrenador.setEspecialidad("Yoga");
+        em.persist(entrenador);
+
+        for (int i = 0; i < FILAS; i++) {
+            Socio socio = new Socio();
+            socio.setNombre("Socio" + i);
+            socio.setApellidos("Prueba");
+            socio.setEmail("socio" + i + "@gimnasio.com");
+            socio.setTelefono("61111111" + i);
+            socio.setPlan(premium);
+            em.persist(socio);
+            idSocio = socio.getIdSocio();
+
+            Clase clase = new Clase();
+            clase.setNombre("Clase" + i);
+            clase.setFechaClase(LocalDate.now().plusDays(1));
+            clase.setEsPrivada(false);
+            clase.setAforoMaximo(10);
+            clase.setHorario(horario);
+            clase.setEntrenador(entrenador);
+            em.persist(clase);
+            idClase = clase.getIdClase();
+
+            Bono bono = new Bono();
+            bono.setSocio(socio);
+            bono.setEntrenador(entrenador);
+            bono.setSesionesTotales(10);
+            em.persist(bono);
+            idBono = bono.getIdBono();
+
+            Reserva reserva = new Reserva();
+            reserva.setClase(clase);
+            reserva.setSocio(socio);
+            reserva.setBono(bono);
+            reserva.setEstado(EstadoReserva.CONFIRMADA);
+            em.persist(reserva);
+        }
+        em.flush();
+        em.clear();
+
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+    }
+
+    @Test
+    void listadoReservasEnUnaSentencia() {
+        Page<Reserva> pagina = reservaRepository.findAll(PageRequest.of(0, 100));
+        pagina.forEach(this::leerCamposReservaDTO);
+        assertThat(pagina.getContent()).hasSize(FILAS);
+        assertThat(estadisticas.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void busquedaReservasEnUnaSentencia() {
+        Page<Reserva> pagina = reservaRepository.findByFiltros(null, EstadoReserva.CONFIRMADA, PageRequest.of(0, 100));
+        pagina.forEach(this::leerCamposReservaDTO);
+        assertThat(pagina.getContent()).hasSize(FILAS);
+        assertThat(estadisticas.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void listadoBonosEnUnaSentencia() {
+        Page<Bono> pagina = bonoRepository.findByFiltros(null, true, PageRequest.of(0, 100));
+        pagina.forEach(this::leerCamposBonoDTO);
+        assertThat(pagina.getContent()).hasSize(FILAS);
+        assertThat(estadisticas.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void bonosDeSocioEnUnaSentencia() {
+        List<Bono> bonos = bonoRepository.findBySocioId(idSocio);
+        bonos.forEach(this::leerCamposBonoDTO);
+        assertThat(bonos).hasSize(1);
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void cursorReservasEnUnaSentencia() {
+        List<Reserva> primeras = reservaRepository.findSiguientes(0L, null, EstadoReserva.CONFIRMADA, PageRequest.of(0, 3));
+        primeras.forEach(this::leerCamposReservaDTO);
+        assertThat(primeras).hasSize(3);
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(1);
+
+        // La página siguiente empieza después del último id y el filtro por socio se aplica
+        Long ultimo = primeras.get(2).getIdReserva();
+        assertThat(reservaRepository.findSiguientes(ultimo, null, null, PageRequest.of(0, 3)))
+                .hasSize(FILAS - 3)
+                .allMatch(reserva -> reserva.getIdReserva() > ultimo);
+        assertThat(reservaRepository.findSiguientes(0L, idSocio, null, PageRequest.of(0, 3)))
+                .singleElement()
+                .satisfies(reserva -> assertThat(reserva.getSocio().getIdSocio()).isEqualTo(idSocio));
+    }
+
+    @Test
+    void cursorBonosEnUnaSentencia() {
+        List<Bono> primeros = bonoRepository.findSiguientes(0L, null, true, PageRequest.of(0, 3));
+        primeros.forEach(this::leerCamposBonoDTO);
+        assertThat(primeros).hasSize(3);
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(1);
+
+        Long ultimo = primeros.get(2).getIdBono();
+        assertThat(bonoRepository.findSiguientes(ultimo, null, null, PageRequest.of(0, 3)))
+                .hasSize(FILAS - 3)
+                .allMatch(bono -> bono.getIdBono() > ultimo);
+        assertThat(bonoRepository.findSiguientes(0L, idSocio, null, PageRequest.of(0, 3)))
+                .singleElement()
+                .satisfies(bono -> assertThat(bono.getSocio().getIdSocio()).isEqualTo(idSocio));
+    }
+
+    @Test
+    void listadoSociosEnUnaSentencia() {
+        Page<Socio> pagina = socioRepository.findOnlySocios(PageRequest.of(0, 100));
+        pagina.forEach(socio -> socio.getPlan().getTipo());
+        assertThat(pagina.getContent()).hasSize(FILAS);
+        assertThat(estadisticas.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void contextoReservaEnUnaSentencia() {
+        ContextoReservaDTO contexto = reservaRepository.findContexto(idClase, idSocio, idBono).orElseThrow();
+        assertThat(contexto.getTipoPlan()).isEqualTo(TipoPlan.PREMIUM);
+        assertThat(contexto.getHoraInicio()).isEqualTo(LocalTime.of(9, 0));
+        assertThat(contexto.getIdSocioBono()).isEqualTo(idSocio);
+        assertThat(contexto.getIdEntrenadorBono()).isEqualTo(contexto.getIdEntrenadorClase());
+        assertThat(contexto.getSesionesRestantesBono()).isEqualTo(10);
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(1);
+
+        // Sin bono los campos del bono quedan a null; sin socio no hay contexto
+        assertThat(reservaRepository.findContexto(idClase, idSocio, null).orElseThrow().getIdBono()).isNull();
+        assertThat(reservaRepository.findContexto(idClase, -1L, null)).isEmpty();
+    }
+
+    // Mismos accesos que ReservaService.convertToDTO
+    private void leerCamposReservaDTO(Reserva reserva) {
+        reserva.getClase().getNombre();
+        reserva.getClase().getHorario().getHoraInicio();
+        reserva.getSocio().getNombre();
+        reserva.getSocio().getApellidos();
+        reserva.getBono().getIdBono();
+    }
+
+    // Mismos accesos que BonoService.convertToDTO
+    private void leerCamposBonoDTO(Bono bono) {
+        bono.getSocio().getNombre();
+        bono.getSocio().getApellidos();
+        bono.getEntrenador().getNombre();
+        bono.getEntrenador().getApellidos();
+    }
+}
@@ -0,0 +1,160 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.*;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.TipoPlan;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Comprueba las sentencias que mantienen el contador de plazas ocupadas de las clases
+// (recálculo de mantenimiento y liberación de las plazas de las reservas que se borran juntas)
+// y la selección de las clases terminadas que el completado tiene que procesar
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:plazas;MODE=MariaDB;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PlazasClasesTest {
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private ClaseRepository claseRepository;
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    private Plan premium;
+    private Horario horario;
+    private Entrenador entrenador;
+    private Socio socio;
+    private Socio otroSocio;
+
+    @BeforeEach
+    void crearDatos() {
+        premium = new Plan();
+        premium.setTipo(TipoPlan.PREMIUM);
+        em.persist(premium);
+
+        horario = new Horario();
+        horario.setHoraInicio(LocalTime.of(9, 0));
+        horario.setHoraFin(LocalTime.of(10, 0));
+        em.persist(horario);
+
+        entrenador = new Entrenador();
+        entrenador.setNombre("Ana");
+        entrenador.setApellidos("López");
+        entrenador.setEmail("ana@gimnasio.com");
+        entrenador.setTelefono("600000000");
+        entrenador.setEspecialidad("Yoga");
+        em.persist(entrenador);
+
+        socio = socio("uno");
+        otroSocio = socio("dos");
+    }
+
+    @Test
+    void recalcularSoloClasesSinTerminar() {
+        Clase pasada = clase("Pasada", LocalDate.now().minusDays(1), 7);
+        Clase futura = clase("Futura", LocalDate.now().plusDays(1), 7);
+        for (Clase clase : List.of(pasada, futura)) {
+            reserva(clase, socio, EstadoReserva.CONFIRMADA);
+            reserva(clase, otroSocio, EstadoReserva.CANCELADA);
+        }
+        em.flush();
+        em.clear();
+
+        int clases = claseRepository.recalcularPlazasOcupadas(EstadoReserva.CONFIRMADA, LocalDate.now(), LocalTime.now());
+        em.clear();
+
+        assertThat(clases).isEqualTo(1);
+        assertThat(em.find(Clase.class, futura.getIdClase()).getPlazasOcupadas()).isEqualTo(1);
+        assertThat(em.find(Clase.class, pasada.getIdClase()).getPlazasOcupadas()).isEqualTo(7);
+    }
+
+    @Test
+    void liberarPlazasDeLasReservasDeUnSocio() {
+        Clase llena = clase("Llena", LocalDate.now().plusDays(1), 2);
+        Clase vacia = clase("Vacia", LocalDate.now().plusDays(2), 0);
+        Clase ajena = clase("Ajena", LocalDate.now().plusDays(3), 1);
+        reserva(llena, socio, EstadoReserva.CONFIRMADA);
+        reserva(llena, otroSocio, EstadoReserva.CONFIRMADA);
+        reserva(vacia, socio, EstadoReserva.CONFIRMADA);
+        reserva(ajena, socio, EstadoReserva.CANCELADA);
+        reserva(ajena, otroSocio, EstadoReserva.CONFIRMADA);
+        em.flush();
+        em.clear();
+
+        List<Reserva> reservas = reservaRepository.findBySocioIdAndEstadoNot(socio.getIdSocio(), EstadoReserva.CANCELADA);
+        assertThat(reservas).extracting(reserva -> reserva.getClase().getIdClase())
+                .containsExactlyInAnyOrder(llena.getIdClase(), vacia.getIdClase());
+
+        claseRepository.liberarPlazas(List.of(llena.getIdClase(), vacia.getIdClase()));
+        em.clear();
+
+        // El contador nunca baja de 0 y las clases sin reservas del socio no cambian
+        assertThat(em.find(Clase.class, llena.getIdClase()).getPlazasOcupadas()).isEqualTo(1);
+        assertThat(em.find(Clase.class, vacia.getIdClase()).getPlazasOcupadas()).isZero();
+        assertThat(em.find(Clase.class, ajena.getIdClase()).getPlazasOcupadas()).isEqualTo(1);
+    }
+
+    @Test
+    void terminadasConReservasSinMirarElContador() {
+        Clase desfasada = clase("Desfasada", LocalDate.now().minusDays(2), 0);
+        Clase completada = clase("Completada", LocalDate.now().minusDays(1), 3);
+        Clase futura = clase("Futura", LocalDate.now().plusDays(1), 1);
+        reserva(desfasada, socio, EstadoReserva.CONFIRMADA);
+        reserva(completada, socio, EstadoReserva.COMPLETADA);
+        reserva(futura, socio, EstadoReserva.CONFIRMADA);
+        em.flush();
+        em.clear();
+
+        assertThat(claseRepository.findIdsClasesTerminadasConReservas(
+                LocalDate.now(), LocalTime.now(), EstadoReserva.CONFIRMADA, PageRequest.of(0, 10)))
+                .containsExactly(desfasada.getIdClase());
+    }
+
+    private Socio socio(String nombre) {
+        Socio socio = new Socio();
+        socio.setNombre(nombre);
+        socio.setApellidos("Prueba");
+        socio.setEmail(nombre + "@gimnasio.com");
+        socio.setTelefono("611111111");
+        socio.setPlan(premium);
+        em.persist(socio);
+        return socio;
+    }
+
+    private Clase clase(String nombre, LocalDate fecha, int plazasOcupadas) {
+        Clase clase = new Clase();
+        clase.setNombre(nombre);
+        clase.setFechaClase(fecha);
+        clase.setEsPrivada(false);
+        clase.setAforoMaximo(10);
+        clase.setPlazasOcupadas(plazasOcupadas);
+        clase.setHorario(horario);
+        clase.setEntrenador(entrenador);
+        em.persist(clase);
+        return clase;
+    }
+
+    private void reserva(Clase clase, Socio socio, EstadoReserva estado) {
+        Reserva reserva = new Reserva();
+        reserva.setClase(clase);
+        reserva.setSocio(socio);
+        reserva.setEstado(estado);
+        em.persist(reserva);
+    }
+}
@@ -0,0 +1,192 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.HuecoDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ClaseRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ReservaRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Comprueba la detección de solapes de la agenda en memoria: solapes parciales, intervalos contiguos
+// (que no se solapan) e intervalos contenidos, también con datos de la BD ya solapados entre sí.
+// También los huecos libres de un entrenador en los bordes del horario de apertura (07:00 a 22:00)
+class AgendaServiceTest {
+
+    private static final long ENTRENADOR = 1L;
+    private static final long SOCIO = 2L;
+    private static final LocalDate FECHA = LocalDate.now().plusDays(7);
+
+    private final ClaseRepository claseRepository = mock(ClaseRepository.class);
+    private final ReservaRepository reservaRepository = mock(ReservaRepository.class);
+    private final List<Object[]> clases = new ArrayList<>();
+    private final List<Object[]> reservas = new ArrayList<>();
+    private AgendaService agendaService;
+
+    @BeforeEach
+    void crearServicio() {
+        agendaService = new AgendaService(400, "07:00", "22:00", List.of());
+        ReflectionTestUtils.setField(agendaService, "claseRepository", claseRepository);
+        ReflectionTestUtils.setField(agendaService, "reservaRepository", reservaRepository);
+        when(claseRepository.findIntervalosByFechas(any())).thenReturn(clases);
+        when(reservaRepository.findIntervalosSociosByFechas(any(), eq(EstadoReserva.CONFIRMADA))).thenReturn(reservas);
+    }
+
+    @Test
+    void solapeParcial() {
+        clase(10L, "10:00", "11:00");
+
+        assertThat(buscar("10:30", "11:30")).isEqualTo(10L);
+        assertThat(buscar("09:30", "10:30")).isEqualTo(10L);
+    }
+
+    @Test
+    void intervalosContiguosNoSeSolapan() {
+        clase(10L, "10:00", "11:00");
+
+        assertThat(buscar("09:00", "10:00")).isNull();
+        assertThat(buscar("11:00", "12:00")).isNull();
+    }
+
+    @Test
+    void intervaloContenidoYQueContiene() {
+        clase(10L, "10:00", "12:00");
+
+        assertThat(buscar("10:30", "11:00")).isEqualTo(10L);
+        assertThat(buscar("09:00", "13:00")).isEqualTo(10L);
+        assertThat(buscar("10:00", "12:00")).isEqualTo(10L);
+    }
+
+    @Test
+    void laPropiaClaseNoCuentaComoSolape() {
+        clase(10L, "10:00", "11:00");
+
+        assertThat(agendaService.buscarSolapeEntrenador(ENTRENADOR, FECHA, time("10:30"), time("11:30"), 10L)).isNull();
+    }
+
+    @Test
+    void intervaloLargoTapadoPorUnoCortoPosterior() {
+        // Datos de la BD ya solapados: la clase larga empieza antes que la corta y acaba después
+        clase(10L, "09:00", "12:00");
+        clase(20L, "10:00", "10:30");
+
+        assertThat(buscar("11:00", "11:30")).isEqualTo(10L);
+        assertThat(buscar("12:00", "13:00")).isNull();
+    }
+
+    @Test
+    void ocuparSocioRechazaClaseContenidaEnUnaReservaLarga() {
+        reserva(10L, "09:00", "12:00");
+        reserva(20L, "10:00", "10:30");
+
+        assertThat(agendaService.ocuparSocio(SOCIO, 30L, FECHA, time("11:00"), time("11:30"))).isEqualTo(10L);
+        assertThat(agendaService.ocuparSocio(SOCIO, 40L, FECHA, time("12:00"), time("12:30"))).isNull();
+        // La que se acaba de anotar ya ocupa su hueco
+        assertThat(agendaService.ocuparSocio(SOCIO, 50L, FECHA, time("12:15"), time("12:45"))).isEqualTo(40L);
+    }
+
+    @Test
+    void diaSinClasesEsUnSoloHueco() {
+        assertThat(huecos(60)).containsExactly(hueco("07:00", "22:00"));
+    }
+
+    @Test
+    void claseALaAperturaYALCierreNoDejanHuecosVacios() {
+        clase(10L, "07:00", "08:00");
+        clase(20L, "21:00", "22:00");
+
+        assertThat(huecos(60)).containsExactly(hueco("08:00", "21:00"));
+    }
+
+    @Test
+    void clasesFueraDelHorarioDeAperturaSeRecortan() {
+        clase(10L, "06:00", "07:30");
+        clase(20L, "21:30", "23:00");
+
+        assertThat(huecos(30)).containsExactly(hueco("07:30", "21:30"));
+    }
+
+    @Test
+    void huecosMasCortosQueLaDuracionNoSeDevuelven() {
+        clase(10L, "07:45", "09:00");
+        // Como socio también ocupa su agenda
+        reservaDe(ENTRENADOR, 20L, "09:30", "21:15");
+
+        assertThat(huecos(30)).containsExactly(hueco("07:00", "07:45"), hueco("09:00", "09:30"), hueco("21:15", "22:00"));
+        assertThat(huecos(31)).containsExactly(hueco("07:00", "07:45"), hueco("21:15", "22:00"));
+        assertThat(huecos(46)).isEmpty();
+    }
+
+    @Test
+    void huecoJustoDeLaDuracionPedida() {
+        clase(10L, "08:00", "22:00");
+
+        assertThat(huecos(60)).containsExactly(hueco("07:00", "08:00"));
+        assertThat(huecos(61)).isEmpty();
+    }
+
+    @Test
+    void losHuecosDeHoyEmpiezanComoProntoAhora() {
+        LocalTime antes = LocalTime.now().withSecond(0).withNano(0);
+        List<HuecoDTO> huecos = agendaService.huecosEntrenador(ENTRENADOR, LocalDate.now(), LocalDate.now(), 1);
+
+        // Pasado el cierre no queda ningún hueco
+        assertThat(huecos).hasSizeLessThanOrEqualTo(1);
+        huecos.forEach(hueco -> {
+            assertThat(hueco.getHoraInicio()).isAfterOrEqualTo(antes.isBefore(time("07:00")) ? time("07:00") : antes);
+            assertThat(hueco.getHoraFin()).isEqualTo(time("22:00"));
+        });
+    }
+
+    @Test
+    void diasCerradosSinHuecos() {
+        agendaService = new AgendaService(400, "07:00", "22:00", List.of(FECHA.getDayOfWeek().name().toLowerCase()));
+        ReflectionTestUtils.setField(agendaService, "claseRepository", claseRepository);
+        ReflectionTestUtils.setField(agendaService, "reservaRepository", reservaRepository);
+
+        assertThat(huecos(60)).isEmpty();
+        assertThat(agendaService.huecosEntrenador(ENTRENADOR, FECHA, FECHA.plusDays(1), 60))
+                .containsExactly(new HuecoDTO(FECHA.plusDays(1), time("07:00"), time("22:00")));
+    }
+
+    private List<HuecoDTO> huecos(int duracionMinutos) {
+        return agendaService.huecosEntrenador(ENTRENADOR, FECHA, FECHA, duracionMinutos);
+    }
+
+    private static HuecoDTO hueco(String inicio, String fin) {
+        return new HuecoDTO(FECHA, time(inicio), time(fin));
+    }
+
+    private Long buscar(String inicio, String fin) {
+        return agendaService.buscarSolapeEntrenador(ENTRENADOR, FECHA, time(inicio), time(fin), null);
+    }
+
+    // [fecha, idClase, idEntrenador, horaInicio, horaFin]
+    private void clase(Long idClase, String inicio, String fin) {
+        clases.add(new Object[]{FECHA, idClase, ENTRENADOR, time(inicio), time(fin)});
+    }
+
+    // [fecha, idSocio, idClase, horaInicio, horaFin]
+    private void reserva(Long idClase, String inicio, String fin) {
+        reservaDe(SOCIO, idClase, inicio, fin);
+    }
+
+    private void reservaDe(Long idSocio, Long idClase, String inicio, String fin) {
+        reservas.add(new Object[]{FECHA, idSocio, idClase, time(inicio), time(fin)});
+    }
+
+    private static LocalTime time(String hora) {
+        return LocalTime.parse(hora);
+    }
+}
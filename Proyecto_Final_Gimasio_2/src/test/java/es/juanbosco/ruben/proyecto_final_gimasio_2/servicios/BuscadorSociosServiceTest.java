@@ -0,0 +1,110 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SocioDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.SocioRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Entrenador;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.entidades.Socio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Comprueba la búsqueda por trigramas: consultas más cortas que un trigrama, tildes y mayúsculas en la
+// consulta o en los datos, orden por relevancia y actualización del índice
+// (sin transacción activa las acciones "al confirmar" se ejecutan en el momento)
+class BuscadorSociosServiceTest {
+
+    private final SocioRepository socioRepository = mock(SocioRepository.class);
+    private BuscadorSociosService buscador;
+
+    @BeforeEach
+    void cargarIndice() {
+        buscador = new BuscadorSociosService();
+        ReflectionTestUtils.setField(buscador, "socioRepository", socioRepository);
+        when(socioRepository.findSiguientes(anyLong(), any(), any())).thenReturn(List.of(
+                socio(1L, "José", "Muñoz Pérez", "jmunoz@correo.es", "600111222"),
+                socio(2L, "Ana", "López", "ana.lopez@correo.es", "600333444"),
+                socio(3L, "Mariana", "Ruiz", "mruiz@correo.es", "611555666")));
+        buscador.run(null);
+    }
+
+    @Test
+    void consultasMasCortasQueUnTrigrama() {
+        assertThat(ids(buscador.buscar("an", 10))).containsExactly(2L, 3L);
+        assertThat(ids(buscador.buscar("J", 10))).containsExactly(1L);
+        assertThat(ids(buscador.buscar("Rú", 10))).containsExactly(3L);
+    }
+
+    @Test
+    void consultasVaciasNoDevuelvenNada() {
+        assertThat(buscador.buscar("", 10)).isEmpty();
+        assertThat(buscador.buscar("   ", 10)).isEmpty();
+        assertThat(buscador.buscar(null, 10)).isEmpty();
+        assertThat(buscador.buscar("ana", 0)).isEmpty();
+    }
+
+    @Test
+    void sinTildesNiMayusculas() {
+        assertThat(ids(buscador.buscar("jose munoz", 10))).containsExactly(1L);
+        assertThat(ids(buscador.buscar("MUÑOZ", 10))).containsExactly(1L);
+        assertThat(ids(buscador.buscar("  ana   lópez ", 10))).containsExactly(2L);
+        // La consulta con tilde encuentra el dato sin ella (email)
+        assertThat(ids(buscador.buscar("jmuñoz", 10))).containsExactly(1L);
+    }
+
+    @Test
+    void trigramaQueNoExisteNoDevuelveNada() {
+        assertThat(buscador.buscar("xyz", 10)).isEmpty();
+        assertThat(buscador.buscar("anax", 10)).isEmpty();
+    }
+
+    @Test
+    void primeroLasCoincidenciasAlPrincipio() {
+        // "ana" empieza el nombre de Ana y está en medio de Mariana
+        assertThat(ids(buscador.buscar("ana", 10))).containsExactly(2L, 3L);
+        assertThat(ids(buscador.buscar("ana", 1))).containsExactly(2L);
+    }
+
+    @Test
+    void reindexarQuitaLosDatosAnteriores() {
+        buscador.indexar(socio(2L, "Anabel", "Gómez", "anabel@correo.es", "600333444"));
+
+        assertThat(buscador.buscar("lopez", 10)).isEmpty();
+        assertThat(ids(buscador.buscar("gomez", 10))).containsExactly(2L);
+
+        buscador.eliminar(2L);
+        assertThat(buscador.buscar("gomez", 10)).isEmpty();
+    }
+
+    @Test
+    void losEntrenadoresNoSeIndexan() {
+        Entrenador entrenador = new Entrenador();
+        entrenador.setIdSocio(4L);
+        entrenador.setNombre("Ramón");
+        entrenador.setApellidos("Sanz");
+        buscador.indexar(entrenador);
+
+        assertThat(buscador.buscar("ramon", 10)).isEmpty();
+    }
+
+    private static List<Long> ids(List<SocioDTO> socios) {
+        return socios.stream().map(SocioDTO::getIdSocio).toList();
+    }
+
+    private static Socio socio(Long id, String nombre, String apellidos, String email, String telefono) {
+        Socio socio = new Socio();
+        socio.setIdSocio(id);
+        socio.setNombre(nombre);
+        socio.setApellidos(apellidos);
+        socio.setEmail(email);
+        socio.setTelefono(telefono);
+        return socio;
+    }
+}
@@ -0,0 +1,115 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ClaseCalendarioDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ClaseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Comprueba que las plazas del calendario en memoria solo cambian cuando se confirma la transacción
+// (y nunca bajan de 0), y que un día descartado se vuelve a cargar de la BD
+class CalendarioServiceTest {
+
+    private static final LocalDate FECHA = LocalDate.now().plusDays(3);
+    private static final long CLASE = 10L;
+
+    private final ClaseRepository claseRepository = mock(ClaseRepository.class);
+    private final List<Object[]> filas = new ArrayList<>();
+    private CalendarioService calendarioService;
+
+    @BeforeEach
+    void crearServicio() {
+        calendarioService = new CalendarioService(120, 10);
+        ReflectionTestUtils.setField(calendarioService, "claseRepository", claseRepository);
+        when(claseRepository.findCalendarioByFechas(any())).thenReturn(filas);
+        filas.add(fila(CLASE, 5));
+    }
+
+    @AfterEach
+    void limpiarTransaccion() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void elAjusteSeAplicaAlConfirmar() {
+        assertThat(reservas()).isEqualTo(5);
+
+        TransactionSynchronizationManager.initSynchronization();
+        calendarioService.ajustarPlazas(CLASE, 1);
+        // Antes del commit el calendario no cambia
+        assertThat(reservas()).isEqualTo(5);
+        terminar(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(reservas()).isEqualTo(6);
+    }
+
+    @Test
+    void elAjusteSeDescartaAlDeshacer() {
+        assertThat(reservas()).isEqualTo(5);
+
+        TransactionSynchronizationManager.initSynchronization();
+        calendarioService.ajustarPlazas(CLASE, -1);
+        terminar(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(reservas()).isEqualTo(5);
+    }
+
+    @Test
+    void lasPlazasNoBajanDeCero() {
+        filas.set(0, fila(CLASE, 0));
+        assertThat(reservas()).isZero();
+
+        calendarioService.ajustarPlazas(CLASE, -1);
+
+        assertThat(reservas()).isZero();
+    }
+
+    @Test
+    void elDiaDescartadoSeVuelveACargar() {
+        assertThat(reservas()).isEqualTo(5);
+
+        TransactionSynchronizationManager.initSynchronization();
+        calendarioService.invalidarClase(CLASE);
+        filas.set(0, fila(CLASE, 7));
+        assertThat(reservas()).isEqualTo(5);
+        terminar(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(reservas()).isEqualTo(7);
+        verify(claseRepository, times(2)).findCalendarioByFechas(any());
+    }
+
+    // Reservas confirmadas de la clase en el calendario del día
+    private int reservas() {
+        List<ClaseCalendarioDTO> clases = calendarioService.obtener(FECHA, 1).getCalendario().get(0).getClases();
+        return clases.get(0).getReservasConfirmadas();
+    }
+
+    private static void terminar(int estado) {
+        List<TransactionSynchronization> acciones = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(acciones, estado);
+    }
+
+    // [fechaClase, idClase, nombre, esPrivada, aforoMaximo, plazasOcupadas, idHorario, horaInicio, horaFin]
+    private static Object[] fila(Long idClase, int ocupadas) {
+        return new Object[]{FECHA, idClase, "Clase " + idClase, false, 10, ocupadas, 1L, LocalTime.of(9, 0), LocalTime.of(10, 0)};
+    }
+}
@@ -0,0 +1,133 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ContextoReservaDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.BusinessRuleException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Repositorios.ReservaRepository;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoReserva;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Comprueba que la lista de accesos en memoria solo es una caché: lo que no está en ella se consulta
+// en la BD antes de rechazar, y los rechazos confirmados por la BD se recuerdan un tiempo
+class CheckinServiceTest {
+
+    private static final long SOCIO = 7L;
+    private static final LocalTime ABIERTA_INICIO = LocalTime.MIN;
+    private static final LocalTime ABIERTA_FIN = LocalTime.MAX;
+
+    private final ReservaRepository reservaRepository = mock(ReservaRepository.class);
+    private final List<Object[]> listaDeHoy = new ArrayList<>();
+    private CheckinService checkinService;
+
+    @BeforeEach
+    void crearServicio() {
+        checkinService = new CheckinService(mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(checkinService, "reservaRepository", reservaRepository);
+        ReflectionTestUtils.setField(checkinService, "antelacionMin", 30L);
+        ReflectionTestUtils.setField(checkinService, "rechazoCacheSeg", 60L);
+        when(reservaRepository.findAccesosByFecha(any(), eq(EstadoReserva.CONFIRMADA))).thenReturn(listaDeHoy);
+        when(reservaRepository.findAccesosBySocioAndFecha(anyLong(), any(), eq(EstadoReserva.CONFIRMADA))).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void detener() {
+        checkinService.detener();
+    }
+
+    @Test
+    void reservaDeOtraInstanciaSeBuscaEnLaBd() {
+        checkinService.precargar();
+        when(reservaRepository.findAccesosBySocioAndFecha(eq(SOCIO), any(), eq(EstadoReserva.CONFIRMADA)))
+                .thenReturn(List.<Object[]>of(fila(1L, 10L, ABIERTA_INICIO, ABIERTA_FIN)));
+
+        assertThat(checkinService.checkin(SOCIO).getIdReserva()).isEqualTo(1L);
+        // La reserva queda en la lista: la segunda entrada ya no consulta la BD
+        assertThat(checkinService.checkin(SOCIO).getRepetido()).isTrue();
+        verify(reservaRepository, times(1)).findAccesosBySocioAndFecha(eq(SOCIO), any(), any());
+    }
+
+    @Test
+    void socioEnLaListaConOtraReservaNuevaSeBuscaEnLaBd() {
+        // En la lista solo tiene una clase que ahora no está abierta
+        LocalTime inicio = LocalTime.now().getHour() >= 12 ? LocalTime.of(0, 0) : LocalTime.of(22, 0);
+        listaDeHoy.add(fila(1L, 10L, inicio, inicio.plusHours(1)));
+        checkinService.precargar();
+        when(reservaRepository.findAccesosBySocioAndFecha(eq(SOCIO), any(), eq(EstadoReserva.CONFIRMADA)))
+                .thenReturn(List.of(fila(1L, 10L, inicio, inicio.plusHours(1)), fila(2L, 20L, ABIERTA_INICIO, ABIERTA_FIN)));
+
+        assertThat(checkinService.checkin(SOCIO).getIdReserva()).isEqualTo(2L);
+    }
+
+    @Test
+    void rechazoConfirmadoPorLaBdSeRecuerda() {
+        checkinService.precargar();
+
+        assertThatThrownBy(() -> checkinService.checkin(SOCIO)).isInstanceOf(BusinessRuleException.class);
+        assertThatThrownBy(() -> checkinService.checkin(SOCIO)).isInstanceOf(BusinessRuleException.class);
+        verify(reservaRepository, times(1)).findAccesosBySocioAndFecha(eq(SOCIO), any(), any());
+
+        // Una reserva confirmada en esta instancia se ve en el momento, sin esperar a que caduque el rechazo
+        // (sin transacción activa las acciones "al confirmar" se ejecutan en el momento)
+        checkinService.anotarReserva(3L, contexto(30L, ABIERTA_INICIO, ABIERTA_FIN));
+        assertThat(checkinService.checkin(SOCIO).getIdReserva()).isEqualTo(3L);
+        verify(reservaRepository, times(1)).findAccesosBySocioAndFecha(eq(SOCIO), any(), any());
+    }
+
+    @Test
+    void rechazoCaducadoVuelveAConsultarLaBd() {
+        ReflectionTestUtils.setField(checkinService, "rechazoCacheSeg", 0L);
+        checkinService.precargar();
+
+        assertThatThrownBy(() -> checkinService.checkin(SOCIO)).isInstanceOf(BusinessRuleException.class);
+        assertThatThrownBy(() -> checkinService.checkin(SOCIO)).isInstanceOf(BusinessRuleException.class);
+        verify(reservaRepository, times(2)).findAccesosBySocioAndFecha(eq(SOCIO), any(), any());
+    }
+
+    @Test
+    void quitarClaseSoloQuitaSusReservas() {
+        listaDeHoy.add(fila(1L, 10L, ABIERTA_INICIO, ABIERTA_FIN));
+        listaDeHoy.add(fila(2L, 20L, ABIERTA_INICIO.plusMinutes(1), ABIERTA_FIN));
+        checkinService.precargar();
+
+        checkinService.quitarClase(LocalDate.now(), 10L);
+
+        assertThat(checkinService.checkin(SOCIO).getIdReserva()).isEqualTo(2L);
+        verify(reservaRepository, never()).findAccesosBySocioAndFecha(anyLong(), any(), any());
+    }
+
+    // [idReserva, idSocio, idClase, nombreClase, horaInicio, horaFin, fechaCheckin]
+    private static Object[] fila(Long idReserva, Long idClase, LocalTime inicio, LocalTime fin) {
+        return new Object[]{idReserva, SOCIO, idClase, "Clase " + idClase, inicio, fin, null};
+    }
+
+    private static ContextoReservaDTO contexto(Long idClase, LocalTime inicio, LocalTime fin) {
+        ContextoReservaDTO contexto = new ContextoReservaDTO();
+        contexto.setIdClase(idClase);
+        contexto.setNombreClase("Clase " + idClase);
+        contexto.setFechaClase(LocalDate.now());
+        contexto.setHoraInicio(inicio);
+        contexto.setHoraFin(fin);
+        contexto.setIdSocio(SOCIO);
+        return contexto;
+    }
+}
@@ -0,0 +1,54 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ReservaCreateDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ReservaDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.SolicitudReservaDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.EstadoSolicitud;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Comprueba que un Error al crear una reserva no deja parada la cola de su clase
+class ColaReservasServiceTest {
+
+    private final ReservaService reservaService = mock(ReservaService.class);
+    private ColaReservasService colaReservasService;
+
+    @BeforeEach
+    void crearServicio() {
+        colaReservasService = new ColaReservasService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(colaReservasService, "reservaService", reservaService);
+        ReflectionTestUtils.setField(colaReservasService, "numTrabajadores", 1);
+        ReflectionTestUtils.setField(colaReservasService, "capacidad", 10);
+        ReflectionTestUtils.setField(colaReservasService, "esperaMaxMs", 5000L);
+        colaReservasService.iniciar();
+    }
+
+    @AfterEach
+    void detener() {
+        colaReservasService.detener();
+    }
+
+    @Test
+    void laColaSigueTrasUnError() {
+        ReservaDTO reserva = new ReservaDTO();
+        reserva.setIdReserva(1L);
+        when(reservaService.create(any())).thenThrow(new StackOverflowError()).thenReturn(reserva);
+
+        assertThatThrownBy(() -> colaReservasService.reservar(new ReservaCreateDTO(10L, 1L, null)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasCauseInstanceOf(StackOverflowError.class);
+
+        SolicitudReservaDTO siguiente = colaReservasService.reservar(new ReservaCreateDTO(10L, 2L, null));
+        assertThat(siguiente.getEstado()).isEqualTo(EstadoSolicitud.CONFIRMADA);
+        assertThat(siguiente.getReserva().getIdReserva()).isEqualTo(1L);
+    }
+}
@@ -0,0 +1,70 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Comprueba el ranking en memoria: orden y límite, reutilización del ranking calculado durante unos
+// segundos y limpieza de las clases pasadas o sin reservas
+// (sin transacción activa las acciones "al confirmar" se ejecutan en el momento)
+class RankingClasesServiceTest {
+
+    private static final LocalDate MANANA = LocalDate.now().plusDays(1);
+    private static final LocalDateTime AHORA = LocalDateTime.now();
+
+    @Test
+    void ordenadasDeMasAMenosReservasHastaElLimite() {
+        RankingClasesService ranking = new RankingClasesService(0);
+        reservar(ranking, 1L, MANANA, 1);
+        reservar(ranking, 2L, MANANA, 3);
+        reservar(ranking, 3L, MANANA, 2);
+
+        assertThat(ranking.findIdsPopulares(2, 0)).containsExactly(2L, 3L);
+        assertThat(ranking.findIdsPopulares(10, 7)).containsExactly(2L, 3L, 1L);
+    }
+
+    @Test
+    void elRankingSeReutilizaHastaQueCaduca() {
+        RankingClasesService ranking = new RankingClasesService(60);
+        reservar(ranking, 1L, MANANA, 1);
+        assertThat(ranking.findIdsPopulares(10, 0)).containsExactly(1L);
+
+        reservar(ranking, 2L, MANANA, 2);
+        assertThat(ranking.findIdsPopulares(10, 0)).containsExactly(1L);
+
+        // La limpieza descarta los rankings calculados
+        ranking.limpiar();
+        assertThat(ranking.findIdsPopulares(10, 0)).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void limpiarQuitaLasClasesPasadasYLasQueSeQuedanSinReservas() {
+        RankingClasesService ranking = new RankingClasesService(0);
+        reservar(ranking, 1L, LocalDate.now().minusDays(1), 5);
+        reservar(ranking, 2L, MANANA, 1);
+        reservar(ranking, 3L, MANANA, 1);
+        ranking.anularReserva(3L, AHORA);
+
+        // Las clases pasadas no salen aunque sigan en memoria
+        assertThat(ranking.findIdsPopulares(10, 0)).containsExactly(2L);
+
+        ranking.limpiar();
+        assertThat(popularidadPorClase(ranking)).containsOnlyKeys(2L);
+    }
+
+    private static void reservar(RankingClasesService ranking, Long idClase, LocalDate fechaClase, int reservas) {
+        for (int i = 0; i < reservas; i++) {
+            ranking.registrarReserva(idClase, fechaClase, AHORA);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Long, ?> popularidadPorClase(RankingClasesService ranking) {
+        return (Map<Long, ?>) ReflectionTestUtils.getField(ranking, "popularidadPorClase");
+    }
+}
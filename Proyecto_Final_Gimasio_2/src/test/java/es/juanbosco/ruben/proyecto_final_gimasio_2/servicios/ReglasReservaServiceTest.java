@@ -0,0 +1,189 @@
+package es.juanbosco.ruben.proyecto_final_gimasio_2.servicios;
+
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ContextoReservaDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.DTO.ReservaCreateDTO;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ReservaRechazadaException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.Excepciones.ResourceNotFoundException;
+import es.juanbosco.ruben.proyecto_final_gimasio_2.enums.TipoPlan;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Comprueba el orden de las reglas (por coste y, dentro del mismo coste, por declaración), cómo se
+// traduce el rechazo (404 si no existe el bono, si no ReservaRechazadaException con la regla) y que
+// comprobar deshace lo anotado por las reglas anteriores a la que falla
+class ReglasReservaServiceTest {
+
+    private static final long CLASE = 10L;
+    private static final long SOCIO = 1L;
+    private static final long BONO = 5L;
+    private static final long ENTRENADOR = 3L;
+    private static final LocalDate FECHA = LocalDate.now().plusDays(2);
+
+    private final AsignacionPlazasService asignacionPlazasService = mock(AsignacionPlazasService.class);
+    private final AgendaService agendaService = mock(AgendaService.class);
+    private final SesionesBonoService sesionesBonoService = mock(SesionesBonoService.class);
+    private ReglasReservaService reglasReservaService;
+
+    @BeforeEach
+    void crearServicio() {
+        reglasReservaService = new ReglasReservaService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(reglasReservaService, "asignacionPlazasService", asignacionPlazasService);
+        ReflectionTestUtils.setField(reglasReservaService, "agendaService", agendaService);
+        ReflectionTestUtils.setField(reglasReservaService, "sesionesBonoService", sesionesBonoService);
+        when(asignacionPlazasService.registrarAsistente(anyLong(), anyLong())).thenReturn(true);
+        // Sin solape (Mockito devolvería 0 en lugar de null)
+        when(agendaService.ocuparSocio(anyLong(), anyLong(), any(), any(), any())).thenReturn(null);
+        when(asignacionPlazasService.ocuparPlaza(anyLong())).thenReturn(true);
+        when(asignacionPlazasService.sinReservaConfirmada(anyLong(), anyLong())).thenReturn(true);
+        when(sesionesBonoService.consumirSesion(anyLong())).thenReturn(true);
+    }
+
+    @Test
+    void reservaQueCumpleTodasLasReglas() {
+        assertThatCode(() -> reglasReservaService.validar(grupal(), solicitud(null))).doesNotThrowAnyException();
+        assertThatCode(() -> reglasReservaService.validar(privada(), solicitud(BONO))).doesNotThrowAnyException();
+
+        verify(sesionesBonoService).consumirSesion(BONO);
+    }
+
+    @Test
+    void dentroDelMismoCosteSeRespetaElOrdenDeDeclaracion() {
+        // Clase llena y plan BASICO: plan-premium se declara antes que plazas-libres
+        ContextoReservaDTO contexto = grupal();
+        contexto.setTipoPlan(TipoPlan.BASICO);
+        contexto.setPlazasOcupadas(contexto.getAforoMaximo());
+
+        assertThat(regla(contexto, solicitud(null))).isEqualTo("plan-premium");
+
+        // Socio inactivo y clase ya empezada: clase-sin-empezar es la primera
+        contexto.setSocioActivo(false);
+        contexto.setFechaClase(LocalDate.now().minusDays(1));
+        assertThat(regla(contexto, solicitud(null))).isEqualTo("clase-sin-empezar");
+    }
+
+    @Test
+    void lasReglasDelContextoNoTocanLaMemoriaNiLaBD() {
+        ContextoReservaDTO contexto = grupal();
+        contexto.setPlazasOcupadas(contexto.getAforoMaximo());
+
+        assertThatThrownBy(() -> reglasReservaService.validar(contexto, solicitud(null)))
+                .isInstanceOf(ReservaRechazadaException.class)
+                .hasMessageContaining("aforo máximo");
+
+        verifyNoInteractions(asignacionPlazasService, agendaService, sesionesBonoService);
+    }
+
+    @Test
+    void lasDeMemoriaVanAntesQueLasDeBD() {
+        when(agendaService.ocuparSocio(anyLong(), anyLong(), any(), any(), any())).thenReturn(20L);
+
+        assertThat(regla(grupal(), solicitud(null))).isEqualTo("sin-solapes");
+
+        InOrder orden = inOrder(asignacionPlazasService, agendaService);
+        orden.verify(asignacionPlazasService).registrarAsistente(CLASE, SOCIO);
+        orden.verify(agendaService).ocuparSocio(SOCIO, CLASE, FECHA, LocalTime.of(10, 0), LocalTime.of(11, 0));
+        verify(asignacionPlazasService, never()).ocuparPlaza(anyLong());
+        verifyNoInteractions(sesionesBonoService);
+    }
+
+    @Test
+    void bonoQueNoExisteSeRespondeComoNoEncontrado() {
+        ContextoReservaDTO contexto = privada();
+        contexto.setIdBono(null);
+
+        assertThatThrownBy(() -> reglasReservaService.validar(contexto, solicitud(BONO)))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Bono no encontrado con id: " + BONO);
+    }
+
+    @Test
+    void lasReglasDeUnTipoDeClaseNoSeAplicanAlOtro() {
+        // Una privada no exige plan PREMIUM; una grupal no admite bono
+        ContextoReservaDTO contexto = privada();
+        contexto.setTipoPlan(TipoPlan.BASICO);
+        assertThatCode(() -> reglasReservaService.validar(contexto, solicitud(BONO))).doesNotThrowAnyException();
+
+        assertThat(regla(grupal(), solicitud(BONO))).isEqualTo("grupal-sin-bono");
+        assertThat(regla(privada(), solicitud(null))).isEqualTo("privada-con-bono");
+    }
+
+    @Test
+    void comprobarDeshaceLasReglasCumplidasEnOrdenInverso() {
+        when(asignacionPlazasService.ocuparPlaza(anyLong())).thenReturn(false);
+        ContextoReservaDTO contexto = grupal();
+
+        String regla = reglasReservaService.comprobar(contexto, solicitud(null));
+
+        assertThat(regla).isEqualTo("ocupar-plaza");
+        assertThat(ReglasReservaService.esRechazoDeLaClase(regla)).isTrue();
+        InOrder orden = inOrder(asignacionPlazasService, agendaService);
+        orden.verify(agendaService).quitarSocio(SOCIO, CLASE, FECHA, LocalTime.of(10, 0), LocalTime.of(11, 0));
+        orden.verify(asignacionPlazasService).quitarAsistente(CLASE, SOCIO);
+        // La regla que falla no ha anotado nada
+        verify(asignacionPlazasService, never()).liberarPlaza(anyLong(), anyLong());
+    }
+
+    @Test
+    void comprobarNoDeshaceNadaSiSeCumplenTodas() {
+        assertThat(reglasReservaService.comprobar(grupal(), solicitud(null))).isNull();
+
+        verify(asignacionPlazasService, never()).quitarAsistente(anyLong(), anyLong());
+        verify(agendaService, never()).quitarSocio(anyLong(), anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void losRechazosDelSocioNoSonDeLaClase() {
+        when(asignacionPlazasService.registrarAsistente(anyLong(), anyLong())).thenReturn(false);
+
+        String regla = reglasReservaService.comprobar(grupal(), solicitud(null));
+
+        assertThat(regla).isEqualTo("reserva-duplicada");
+        assertThat(ReglasReservaService.esRechazoDeLaClase(regla)).isFalse();
+        verifyNoInteractions(agendaService);
+    }
+
+    // Nombre de la regla que rechaza la reserva en validar
+    private String regla(ContextoReservaDTO contexto, ReservaCreateDTO solicitud) {
+        try {
+            reglasReservaService.validar(contexto, solicitud);
+        } catch (ReservaRechazadaException e) {
+            return e.getRegla();
+        }
+        return null;
+    }
+
+    private static ReservaCreateDTO solicitud(Long idBono) {
+        return new ReservaCreateDTO(CLASE, SOCIO, idBono);
+    }
+
+    private static ContextoReservaDTO grupal() {
+        return new ContextoReservaDTO(CLASE, "Spinning", FECHA, false, 20, 5, ENTRENADOR, 1L,
+                LocalTime.of(10, 0), LocalTime.of(11, 0), SOCIO, "Ana", "López", true, TipoPlan.PREMIUM,
+                null, null, null, null, null, null);
+    }
+
+    private static ContextoReservaDTO privada() {
+        return new ContextoReservaDTO(CLASE, "Entrenamiento personal", FECHA, true, 1, 0, ENTRENADOR, 1L,
+                LocalTime.of(10, 0), LocalTime.of(11, 0), SOCIO, "Ana", "López", true, TipoPlan.PREMIUM,
+                BONO, SOCIO, ENTRENADOR, true, true, 4);
+    }
+}